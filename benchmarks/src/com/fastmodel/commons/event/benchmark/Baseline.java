@@ -0,0 +1,66 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks with the gc profiler, and saves the results as a JSON baseline in
+ * {@code benchmarks/results}, for comparison between releases.
+ *
+ * <pre>
+ *     Baseline &lt;label&gt; [benchmark regex]
+ * </pre>
+ *
+ * The label names the result file, eg. the release version.  By default all benchmarks
+ * in this package are run.
+ *
+ * @version 1.0
+ */
+public final class Baseline {
+
+    private Baseline() {}
+
+    public static void main( String[] args ) throws RunnerException {
+        if ( args.length < 1 ) {
+            System.err.println( "Usage: Baseline <label> [benchmark regex]" );   // NON-NLS
+            System.exit( 1 );
+        }
+        String include = args.length > 1 ? args[ 1 ]
+                : Pattern.quote( Baseline.class.getPackage().getName() ) + "\\..*Benchmark";   // NON-NLS
+
+        File results = new File( "benchmarks/results" );   // NON-NLS
+        if ( !results.isDirectory() && !results.mkdirs() ) {
+            throw new IllegalStateException( "Cannot create " + results );   // NON-NLS
+        }
+
+        Options options = new OptionsBuilder()
+                .include( include )
+                .addProfiler( GCProfiler.class )
+                .resultFormat( ResultFormatType.JSON )
+                .result( new File( results, args[ 0 ] + ".json" ).getPath() )   // NON-NLS
+                .build();
+        new Runner( options ).run();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event.benchmark;
+
+import com.fastmodel.commons.event.IEvent;
+import com.fastmodel.commons.event.IEventService;
+import com.fastmodel.commons.event.IEventSocket;
+import com.fastmodel.commons.event.MultiEventService;
+import com.fastmodel.commons.event.SimpleEventService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code fire} for a cancelable event, which is cancelled by the listener at
+ * {@link #cancelAt}, or by no listener at all if it is negative.
+ *
+ * @version 1.0
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class CancellationBenchmark {
+
+    private static final int LISTENERS = 100;
+
+    @Param( { "0", "10", "50", "-1" } )
+    public int cancelAt;
+
+    @Param( { "false", "true" } )
+    public boolean multi;
+
+    private IEventService< IEvent > service;
+    private final Events.Cancelable event = new Events.Cancelable();
+
+    @Setup
+    public void setUp() {
+        IEventSocket< IEvent > socket;
+        if ( multi ) {
+            MultiEventService< IEvent > service = new MultiEventService<IEvent>( IEvent.class );
+            socket = service.getSocket();
+            this.service = service;
+        } else {
+            SimpleEventService< IEvent > service = new SimpleEventService<IEvent>();
+            socket = service.getSocket();
+            this.service = service;
+        }
+
+        for ( int i = 0; i < LISTENERS; i++ ) {
+            socket.bind( i == cancelAt ? new Events.Canceler() : new Events.Sink() );
+        }
+    }
+
+    @Benchmark
+    public boolean fire() {
+        event.setCancelled( false );
+        return service.fire( event );
+    }
+}
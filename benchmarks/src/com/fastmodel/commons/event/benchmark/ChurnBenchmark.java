@@ -0,0 +1,75 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event.benchmark;
+
+import com.fastmodel.commons.event.IEvent;
+import com.fastmodel.commons.event.IEventBinder;
+import com.fastmodel.commons.event.IEventSocket;
+import com.fastmodel.commons.event.MultiEventService;
+import com.fastmodel.commons.event.SimpleEventService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures binding and unbinding a listener on a service which already has
+ * {@link #listeners} other listeners bound.
+ *
+ * @version 1.0
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( { Mode.AverageTime, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class ChurnBenchmark {
+
+    public enum Binding { SIMPLE, MULTI, ANNOTATED }
+
+    @Param( { "10", "1000" } )
+    public int listeners;
+
+    @Param( { "SIMPLE", "MULTI", "ANNOTATED" } )
+    public Binding binding;
+
+    private IEventSocket< IEvent > socket;
+    private IEventBinder binder;
+    private final Events.Sink listener = new Events.Sink();
+    private final Events.AnnotatedSink object = new Events.AnnotatedSink();
+
+    @Setup
+    public void setUp() {
+        if ( binding == Binding.SIMPLE ) {
+            socket = new SimpleEventService<IEvent>().getSocket();
+        } else {
+            MultiEventService< IEvent > service = new MultiEventService<IEvent>( IEvent.class );
+            socket = service.getSocket();
+            binder = service.getBinder();
+        }
+        for ( int i = 0; i < listeners; i++ ) socket.bind( new Events.Sink() );
+    }
+
+    @Benchmark
+    public boolean bindUnbind() {
+        if ( binding == Binding.ANNOTATED ) {
+            binder.bindAll( object );
+            return binder.unbindAll( object );
+        }
+        socket.bind( listener );
+        return socket.unbind( listener );
+    }
+}
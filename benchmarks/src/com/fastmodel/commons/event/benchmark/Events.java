@@ -0,0 +1,114 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event.benchmark;
+
+import com.fastmodel.commons.event.AbstractCancelableEvent;
+import com.fastmodel.commons.event.AbstractClonableEvent;
+import com.fastmodel.commons.event.IEvent;
+import com.fastmodel.commons.event.IListener;
+import com.fastmodel.commons.event.IReadOnlyListener;
+import com.fastmodel.commons.event.IReusableEvent;
+import com.fastmodel.commons.event.Listener;
+
+/**
+ * The event and listener types used by the benchmarks.
+ *
+ * @version 1.0
+ */
+public final class Events {
+
+    private Events() {}
+
+    public static class Plain implements IEvent {
+    }
+
+    public static class Clonable extends AbstractClonableEvent {
+        public long value;
+    }
+
+    public static class Reusable extends Clonable implements IReusableEvent {
+        public void copyFrom( IReusableEvent original ) {
+            value = ( (Reusable) original ).value;
+        }
+    }
+
+    public static class Cancelable extends AbstractCancelableEvent {
+    }
+
+    // A chain of event classes, for measuring hierarchy depth
+    public static class Depth0 implements IEvent {}
+    public static class Depth1 extends Depth0 {}
+    public static class Depth2 extends Depth1 {}
+    public static class Depth3 extends Depth2 {}
+    public static class Depth4 extends Depth3 {}
+    public static class Depth5 extends Depth4 {}
+    public static class Depth6 extends Depth5 {}
+    public static class Depth7 extends Depth6 {}
+    public static class Depth8 extends Depth7 {}
+
+    // Event classes implementing several event interfaces, for measuring fan-out
+    public interface Facet1 extends IEvent {}
+    public interface Facet2 extends IEvent {}
+    public interface Facet3 extends IEvent {}
+    public interface Facet4 extends IEvent {}
+    public interface Facet5 extends IEvent {}
+    public interface Facet6 extends IEvent {}
+    public interface Facet7 extends IEvent {}
+    public interface Facet8 extends IEvent {}
+    public static class Fan2 implements Facet1, Facet2 {}
+    public static class Fan4 implements Facet1, Facet2, Facet3, Facet4 {}
+    public static class Fan8 implements Facet1, Facet2, Facet3, Facet4, Facet5, Facet6, Facet7, Facet8 {}
+
+    /**
+     * A listener which counts the events it receives, so that dispatch can't be optimized away.
+     */
+    public static class Sink implements IListener< IEvent > {
+        public long count;
+
+        public void handle( IEvent event ) {
+            count++;
+        }
+    }
+
+    /**
+     * A counting listener which doesn't modify its events.
+     */
+    public static class ReadOnlySink extends Sink implements IReadOnlyListener< IEvent > {
+    }
+
+    /**
+     * A counting listener which cancels the events it receives.
+     */
+    public static class Canceler extends Sink {
+        @Override
+        public void handle( IEvent event ) {
+            super.handle( event );
+            ( (AbstractCancelableEvent) event ).cancel();
+        }
+    }
+
+    /**
+     * A counting listener bound by annotation.
+     */
+    public static class AnnotatedSink {
+        public long count;
+
+        @Listener
+        public void onEvent( IEvent event ) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event.benchmark;
+
+import com.fastmodel.commons.event.CompactEventService;
+import com.fastmodel.commons.event.IEvent;
+import com.fastmodel.commons.event.IEventService;
+import com.fastmodel.commons.event.IEventSocket;
+import com.fastmodel.commons.event.MultiEventService;
+import com.fastmodel.commons.event.SimpleEventService;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Checks the heap retained by each service with a given number of listeners bound, for
+ * models which hold a service per domain object.  Unlike the benchmarks, which report
+ * the bytes allocated per operation, this walks the object graphs of services with JOL,
+ * so the result is exact for a given JVM layout.  A service's size is what a second,
+ * identical service adds to the graph of the first, so that objects shared between
+ * services, such as the listeners, the event class and empty arrays, aren't counted.
+ *
+ * <pre>
+ *     Footprint
+ * </pre>
+ *
+ * Prints the retained size of each service, and fails if an empty service, or one with
+ * a single listener, retains more than its bound.  The bounds are for a 64-bit JVM with
+ * compressed references, the default for heaps under 32 GB.
+ *
+ * @version 1.0
+ */
+public final class Footprint {
+
+    public enum Service {
+        SIMPLE( 80, 352 ),
+        MULTI( 112, 496 ),
+        COMPACT( 24, 32 );
+
+        /** The most bytes an empty service may retain */
+        final long emptyBound;
+        /** The most bytes a service with one listener may retain */
+        final long oneListenerBound;
+
+        Service( long emptyBound, long oneListenerBound ) {
+            this.emptyBound = emptyBound;
+            this.oneListenerBound = oneListenerBound;
+        }
+    }
+
+    private static final int[] LISTENERS = { 0, 1, 2, 3, 8 };
+
+    private Footprint() {}
+
+    public static void main( String[] args ) {
+        Events.Sink[] sinks = new Events.Sink[ LISTENERS[ LISTENERS.length - 1 ]];
+        for ( int i = 0; i < sinks.length; i++ ) sinks[ i ] = new Events.Sink();
+
+        // Measured before printing, as JOL prints its own diagnostics when first used
+        Service[] services = Service.values();
+        long[][] sizes = new long[ LISTENERS.length ][ services.length ];
+        for ( int i = 0; i < LISTENERS.length; i++ ) {
+            for ( int j = 0; j < services.length; j++ ) sizes[ i ][ j ] = measure( services[ j ], LISTENERS[ i ], sinks );
+        }
+
+        System.out.printf( "%-10s%s%n", "Listeners", "Bytes per service" );   // NON-NLS
+        System.out.printf( "%-10s", "" );   // NON-NLS
+        for ( Service service : services ) System.out.printf( "%10s", service );   // NON-NLS
+        System.out.println();
+
+        StringBuilder exceeded = new StringBuilder();
+        for ( int i = 0; i < LISTENERS.length; i++ ) {
+            System.out.printf( "%-10d", LISTENERS[ i ] );   // NON-NLS
+            for ( int j = 0; j < services.length; j++ ) {
+                System.out.printf( "%10d", sizes[ i ][ j ] );   // NON-NLS
+                long bound = LISTENERS[ i ] == 0 ? services[ j ].emptyBound
+                        : LISTENERS[ i ] == 1 ? services[ j ].oneListenerBound : Long.MAX_VALUE;
+                if ( sizes[ i ][ j ] > bound ) {
+                    exceeded.append( String.format( "%n%s with %d listeners retains %d bytes, over %d",   // NON-NLS
+                                                    services[ j ], LISTENERS[ i ], sizes[ i ][ j ], bound ));
+                }
+            }
+            System.out.println();
+        }
+
+        if ( exceeded.length() > 0 ) throw new AssertionError( "Footprint over bounds:" + exceeded );   // NON-NLS
+    }
+
+    /**
+     * @return The heap retained by one service, excluding the objects shared between services
+     */
+    private static long measure( Service service, int listeners, Events.Sink[] sinks ) {
+        IEventService< IEvent > first = create( service, listeners, sinks );
+        IEventService< IEvent > second = create( service, listeners, sinks );
+        return GraphLayout.parseInstance( first, second ).totalSize() - GraphLayout.parseInstance( first ).totalSize();
+    }
+
+    private static IEventService< IEvent > create( Service service, int listeners, Events.Sink[] sinks ) {
+        IEventService< IEvent > created = create( service );
+        IEventSocket< IEvent > socket = created.getSocket();
+        for ( int j = 0; j < listeners; j++ ) socket.bind( sinks[ j ] );
+        return created;
+    }
+
+    private static IEventService< IEvent > create( Service service ) {
+        switch ( service ) {
+            case SIMPLE:
+                return new SimpleEventService<IEvent>();
+            case MULTI:
+                return new MultiEventService<IEvent>( IEvent.class );
+            default:
+                return new CompactEventService<IEvent>( IEvent.class );
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event.benchmark;
+
+import com.fastmodel.commons.event.IEvent;
+import com.fastmodel.commons.event.MultiEventService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code fire} on a {@link MultiEventService} for event classes with deep class
+ * hierarchies ({@code Depth*}), or which implement many event interfaces ({@code Fan*}).
+ * One listener is bound to every event type the fired class is assignable to.
+ *
+ * @version 1.0
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class HierarchyBenchmark {
+
+    @Param( { "Depth0", "Depth2", "Depth4", "Depth8", "Fan2", "Fan4", "Fan8" } )
+    public String type;
+
+    private MultiEventService< IEvent > service;
+    private IEvent event;
+
+    @Setup
+    @SuppressWarnings( "unchecked" )
+    public void setUp() throws ReflectiveOperationException {
+        Class< ? extends IEvent > eventClass =
+                Class.forName( Events.class.getName() + "$" + type ).asSubclass( IEvent.class );
+        event = eventClass.getDeclaredConstructor().newInstance();
+
+        service = new MultiEventService<IEvent>( IEvent.class );
+        Set< Class< ? >> types = new LinkedHashSet<Class<?>>();
+        collectEventTypes( eventClass, types );
+        for ( Class< ? > eventType : types ) {
+            service.getSocket( (Class< IEvent >) eventType ).bind( new Events.Sink() );
+        }
+    }
+
+    private static void collectEventTypes( Class< ? > type, Set< Class< ? >> types ) {
+        if ( type == null || !IEvent.class.isAssignableFrom( type ) || !types.add( type )) return;
+
+        collectEventTypes( type.getSuperclass(), types );
+        for ( Class< ? > implemented : type.getInterfaces() ) {
+            collectEventTypes( implemented, types );
+        }
+    }
+
+    @Benchmark
+    public boolean fire() {
+        return service.fire( event );
+    }
+}
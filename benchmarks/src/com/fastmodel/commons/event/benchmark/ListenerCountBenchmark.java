@@ -0,0 +1,71 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event.benchmark;
+
+import com.fastmodel.commons.event.IEvent;
+import com.fastmodel.commons.event.IEventService;
+import com.fastmodel.commons.event.MultiEventService;
+import com.fastmodel.commons.event.SimpleEventService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code fire} as the number of listeners grows, for listeners bound directly
+ * to either service, and for annotated listeners.
+ *
+ * @version 1.0
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class ListenerCountBenchmark {
+
+    public enum Binding { SIMPLE, MULTI, ANNOTATED }
+
+    @Param( { "1", "10", "100", "1000", "10000" } )
+    public int listeners;
+
+    @Param( { "SIMPLE", "MULTI", "ANNOTATED" } )
+    public Binding binding;
+
+    private IEventService< IEvent > service;
+    private final IEvent event = new Events.Plain();
+
+    @Setup
+    public void setUp() {
+        if ( binding == Binding.SIMPLE ) {
+            SimpleEventService< IEvent > simple = new SimpleEventService<IEvent>();
+            for ( int i = 0; i < listeners; i++ ) simple.getSocket().bind( new Events.Sink() );
+            service = simple;
+        } else {
+            MultiEventService< IEvent > multi = new MultiEventService<IEvent>( IEvent.class );
+            for ( int i = 0; i < listeners; i++ ) {
+                if ( binding == Binding.MULTI ) multi.getSocket().bind( new Events.Sink() );
+                else multi.getBinder().bindAll( new Events.AnnotatedSink() );
+            }
+            service = multi;
+        }
+    }
+
+    @Benchmark
+    public boolean fire() {
+        return service.fire( event );
+    }
+}
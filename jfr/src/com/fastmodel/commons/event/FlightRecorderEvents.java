@@ -0,0 +1,166 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.Threshold;
+
+/**
+ * The Java Flight Recorder events emitted by event services while a recording is
+ * running.  Both are enabled by default, with a threshold of 1 ms, which can be changed
+ * in the recording settings as {@code com.fastmodel.commons.event.Fire#threshold} and
+ * {@code com.fastmodel.commons.event.ListenerInvocation#threshold}.  An event disabled in
+ * the running recordings costs no allocation, and a disabled invocation event no work per
+ * listener.
+ *
+ * This class is built separately from the rest of the event services, for Java 11, and
+ * is only loaded reflectively by {@link FlightRecording}.
+ *
+ * @version 1.0
+ */
+final class FlightRecorderEvents extends FlightRecording {
+
+    /** The types of the events, looked up once a recording has run */
+    private volatile EventType fireType;
+    private volatile EventType invocationType;
+
+    /**
+     * Start tracking the state of flight recordings.
+     */
+    FlightRecorderEvents() {
+        FlightRecorder.addListener( new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged( Recording recording ) {
+                update();
+            }
+        } );
+        if ( FlightRecorder.isInitialized() ) update();
+    }
+
+    @Name( "com.fastmodel.commons.event.Fire" )   // NON-NLS
+    @Label( "Event Fire" )   // NON-NLS
+    @Category( "Event Sockets" )   // NON-NLS
+    @Description( "An event fired through an event service" )   // NON-NLS
+    @Threshold( "1 ms" )   // NON-NLS
+    static final class Fire extends Event {
+        @Label( "Event Class" )   // NON-NLS
+        Class<?> eventClass;
+
+        @Label( "Listeners" )   // NON-NLS
+        int listenerCount;
+
+        @Label( "Handled" )   // NON-NLS
+        boolean handled;
+
+        @Label( "Cancelled" )   // NON-NLS
+        boolean cancelled;
+    }
+
+    @Name( "com.fastmodel.commons.event.ListenerInvocation" )   // NON-NLS
+    @Label( "Listener Invocation" )   // NON-NLS
+    @Category( "Event Sockets" )   // NON-NLS
+    @Description( "A listener handling a fired event" )   // NON-NLS
+    @Threshold( "1 ms" )   // NON-NLS
+    static final class Invocation extends Event {
+        @Label( "Listener Class" )   // NON-NLS
+        Class<?> listenerClass;
+
+        @Label( "Listener Method" )   // NON-NLS
+        @Description( "The annotated listener method, for listeners bound by annotation" )   // NON-NLS
+        String method;
+
+        @Label( "Socket Type" )   // NON-NLS
+        @Description( "The event type the listener was bound to" )   // NON-NLS
+        Class<?> socketType;
+
+        @Label( "Event Class" )   // NON-NLS
+        Class<?> eventClass;
+    }
+
+    private void update() {
+        boolean running = false;
+        for ( Recording recording : FlightRecorder.getFlightRecorder().getRecordings() ) {
+            if ( recording.getState() == RecordingState.RUNNING ) running = true;
+        }
+        if ( running && fireType == null ) {
+            invocationType = EventType.getEventType( Invocation.class );
+            fireType = EventType.getEventType( Fire.class );
+        }
+        setRecording( running );
+    }
+
+    @Override
+    boolean isEnabled() {
+        return fireType.isEnabled() || invocationType.isEnabled();
+    }
+
+    @Override
+    boolean recordsInvocations() {
+        return invocationType.isEnabled();
+    }
+
+    @Override
+    Object beginFire() {
+        if ( !fireType.isEnabled() ) return null;
+
+        Fire fire = new Fire();
+        fire.begin();
+        return fire;
+    }
+
+    @Override
+    void endFire( Object recorded, IEvent event, int listenerCount, boolean handled, boolean cancelled ) {
+        Fire fire = (Fire) recorded;
+        fire.end();
+        if ( fire.shouldCommit() ) {
+            fire.eventClass = event.getClass();
+            fire.listenerCount = listenerCount;
+            fire.handled = handled;
+            fire.cancelled = cancelled;
+            fire.commit();
+        }
+    }
+
+    @Override
+    Object beginInvocation() {
+        Invocation invocation = new Invocation();
+        invocation.begin();
+        return invocation;
+    }
+
+    @Override
+    void endInvocation( Object recorded, ListenerEntry listener, IEvent event ) {
+        Invocation invocation = (Invocation) recorded;
+        invocation.end();
+        if ( invocation.shouldCommit() ) {
+            Object target = listener.getTarget();
+            invocation.listenerClass = target == null ? null : target.getClass();
+            invocation.method = listener.getMethod() == null ? null : listener.getMethod().getName();
+            invocation.socketType = listener.getSocketType();
+            invocation.eventClass = event.getClass();
+            invocation.commit();
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@link com.fastmodel.commons.event.GeneratedBinder} for each concrete class
+ * which declares or inherits {@link com.fastmodel.commons.event.Listener} methods, so that
+ * event services bind objects of those classes without reflection.  Each binder carries an
+ * {@link com.fastmodel.commons.event.IListenerIndex} which finds it, and which is
+ * registered as a {@link java.util.ServiceLoader} provider.  Since every listening class
+ * has its own index, an incremental build adds to the registered indexes rather than
+ * replacing them.
+ *
+ * The processor checks the listener methods as event services would at runtime, but at
+ * compile time: each method must take a single parameter;
+ * {@link com.fastmodel.commons.event.Listener#on()} must be assignable to that parameter;
+ * and a named filter must be a static {@code EventFilter} field in scope.  A strict
+ * listener whose event type isn't an {@code IEvent} can never be bound, and is an error;
+ * a non-strict one is only a warning.  Methods which aren't public are never bound, so
+ * they are skipped with a warning.
+ *
+ * The processor is not registered by the library itself; it is run by putting its own
+ * artifact on the annotation processor path.  It only runs in rounds with
+ * {@code @Listener} methods, so a class which only inherits its listener methods, and is
+ * compiled on its own, is bound by reflection.  Private classes, and classes nested in
+ * them, are bound by reflection too.
+ *
+ * @version 1.0
+ */
+@SupportedAnnotationTypes( ListenerProcessor.LISTENER )
+public class ListenerProcessor extends AbstractProcessor {
+
+    private static final String PACKAGE = "com.fastmodel.commons.event";
+    static final String LISTENER = PACKAGE + ".Listener";
+    private static final String EVENT = PACKAGE + ".IEvent";
+    private static final String EVENT_FILTER = PACKAGE + ".EventFilter";
+    private static final String INDEX = PACKAGE + ".IListenerIndex";
+    private static final String SERVICES = "META-INF/services/" + INDEX;
+
+    /** The binary names of the indexes generated so far */
+    private final Set< String > indexes = new LinkedHashSet<String>();
+    /** The listener methods skipped so far, reported once rather than for each listening class */
+    private final Set< ExecutableElement > skipped = new HashSet<ExecutableElement>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process( Set< ? extends TypeElement > annotations, RoundEnvironment roundEnv ) {
+        if ( roundEnv.processingOver() ) {
+            if ( !indexes.isEmpty() ) writeServices();
+            return true;
+        }
+
+        // Every root type is checked, as a class may only inherit its listener methods
+        for ( TypeElement type : ElementFilter.typesIn( roundEnv.getRootElements() )) {
+            processType( type );
+        }
+        return true;
+    }
+
+    private void processType( TypeElement type ) {
+        for ( TypeElement nested : ElementFilter.typesIn( type.getEnclosedElements() )) {
+            if ( !nested.getModifiers().contains( Modifier.PRIVATE )) processType( nested );
+        }
+        if ( type.getKind() != ElementKind.CLASS || type.getModifiers().contains( Modifier.ABSTRACT )
+                || type.getModifiers().contains( Modifier.PRIVATE )) return;
+
+        List< Method > methods = new ArrayList<Method>();
+        boolean valid = true;
+        for ( ExecutableElement method : ElementFilter.methodsIn( elements().getAllMembers( type ))) {
+            AnnotationMirror annotation = getListenerAnnotation( method );
+            if ( annotation == null ) continue;
+
+            if ( !method.getModifiers().contains( Modifier.PUBLIC )) {
+                // Event services only bind public methods, so binding by reflection would skip it too
+                if ( skipped.add( method )) {
+                    processingEnv.getMessager().printMessage( Diagnostic.Kind.WARNING, String.format( "Listener method %s is not public, so it is never bound",   // NON-NLS
+                                                                                      method.getSimpleName() ), method );
+                }
+                continue;
+            }
+
+            Method listener = check( type, method, annotation );
+            if ( listener == null ) valid = false;
+            else if ( listener.eventType != null ) methods.add( listener );
+        }
+        if ( !valid || methods.isEmpty() ) return;
+
+        try {
+            writeBinder( type, methods );
+        } catch ( IOException e ) {
+            processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, "Cannot write listener binder: " + e, type );   // NON-NLS
+        }
+    }
+
+    /**
+     * Check a listener method.
+     *
+     * @return The method to bind, {@code null} if it is invalid, or a method with a
+     *          {@code null} event type if it can never be bound, but isn't strict
+     */
+    private Method check( TypeElement type, ExecutableElement method, AnnotationMirror annotation ) {
+        Messager messager = processingEnv.getMessager();
+        Element at = location( type, method );
+        String name = method.getSimpleName().toString();
+
+        if ( method.getParameters().size() != 1 ) {
+            messager.printMessage( Diagnostic.Kind.ERROR, "Listener method " + name + " must take a single event parameter", at );   // NON-NLS
+            return null;
+        }
+
+        Map< String, Object > values = annotationValues( annotation );
+        TypeMirror parameterType = types().erasure( method.getParameters().get( 0 ).asType() );
+        TypeMirror eventType = parameterType;
+        TypeMirror on = (TypeMirror) values.get( "on" );
+        if ( !types().isSameType( on, elements().getTypeElement( Object.class.getName() ).asType() )) {
+            eventType = types().erasure( on );
+            if ( !types().isAssignable( eventType, parameterType )) {
+                messager.printMessage( Diagnostic.Kind.ERROR, String.format( "Listener method %s listens on %s, which it cannot take as a %s",   // NON-NLS
+                                                                             name, eventType, parameterType ), at );
+                return null;
+            }
+        }
+
+        boolean strict = (Boolean) values.get( "strict" );
+        Method listener = new Method( method, parameterType, eventType, strict, (Boolean) values.get( "readOnly" ),
+                                      (Integer) values.get( "priority" ), (String) values.get( "filter" ));
+        if ( !types().isAssignable( eventType, types().erasure( elements().getTypeElement( EVENT ).asType() ))) {
+            if ( strict ) {
+                messager.printMessage( Diagnostic.Kind.ERROR, String.format( "Strict listener method %s listens on %s, which is not an IEvent",   // NON-NLS
+                                                                             name, eventType ), at );
+                return null;
+            }
+            messager.printMessage( Diagnostic.Kind.WARNING, String.format( "Listener method %s listens on %s, which is not an IEvent, so it is never bound",   // NON-NLS
+                                                                           name, eventType ), at );
+            listener.eventType = null;
+            return listener;
+        }
+
+        if ( !listener.filterName.isEmpty() ) {
+            VariableElement field = findFilter( type, listener.filterName );
+            if ( field == null ) {
+                messager.printMessage( Diagnostic.Kind.ERROR, String.format( "Listener method %s names filter %s, which is not a static EventFilter field in scope",   // NON-NLS
+                                                                             name, listener.filterName ), at );
+                return null;
+            }
+            if ( !checkFilterType( field, eventType )) {
+                messager.printMessage( Diagnostic.Kind.ERROR, String.format( "Filter %s of listener method %s applies to an unrelated event type",   // NON-NLS
+                                                                             listener.filterName, name ), at );
+                return null;
+            }
+            if ( isAccessible( field, type )) listener.filterField = field;
+        }
+        return listener;
+    }
+
+    /**
+     * Find a listener's filter field as event services do: in the listening class and its
+     * superclasses, then its enclosing classes.
+     *
+     * @return The field, or {@code null} if there is no static {@code EventFilter} field of
+     *          that name
+     */
+    private VariableElement findFilter( TypeElement type, String name ) {
+        TypeMirror filterType = types().erasure( elements().getTypeElement( EVENT_FILTER ).asType() );
+        for ( Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement() ) {
+            for ( TypeElement declaring = (TypeElement) enclosing; declaring != null; declaring = superclass( declaring )) {
+                for ( VariableElement field : ElementFilter.fieldsIn( declaring.getEnclosedElements() )) {
+                    if ( !field.getSimpleName().contentEquals( name )) continue;
+
+                    boolean valid = field.getModifiers().contains( Modifier.STATIC )
+                            && types().isAssignable( types().erasure( field.asType() ), filterType );
+                    return valid ? field : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code false} if the field's declared filter type is unrelated to the event type
+     */
+    private boolean checkFilterType( VariableElement field, TypeMirror eventType ) {
+        if ( field.asType().getKind() != TypeKind.DECLARED ) return true;
+
+        List< ? extends TypeMirror > arguments = ( (DeclaredType) field.asType() ).getTypeArguments();
+        if ( arguments.size() != 1 || arguments.get( 0 ).getKind() != TypeKind.DECLARED ) return true;
+
+        TypeMirror filterType = types().erasure( arguments.get( 0 ));
+        return types().isAssignable( filterType, eventType ) || types().isAssignable( eventType, filterType );
+    }
+
+    /**
+     * @return {@code true} if a binder in the package of the listening class can read the field
+     */
+    private boolean isAccessible( VariableElement field, TypeElement type ) {
+        for ( Element element = field; element instanceof VariableElement || element instanceof TypeElement;
+              element = element.getEnclosingElement() ) {
+            Set< Modifier > modifiers = element.getModifiers();
+            if ( modifiers.contains( Modifier.PRIVATE )) return false;
+            if ( !modifiers.contains( Modifier.PUBLIC ) && !elements().getPackageOf( element ).equals( elements().getPackageOf( type ))) return false;
+        }
+        return true;
+    }
+
+    private void writeBinder( TypeElement type, List< Method > methods ) throws IOException {
+        PackageElement pkg = elements().getPackageOf( type );
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binderName = binderName( type );
+        String qualifiedName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+        String target = types().erasure( type.asType() ).toString();
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile( qualifiedName, type );
+        try ( Writer out = file.openWriter() ) {
+            if ( !packageName.isEmpty() ) out.write( "package " + packageName + ";\n\n" );
+            out.write( "/**\n * Listener binder for {@link " + target + "}, generated by "
+                       + ListenerProcessor.class.getName() + ".  Do not edit.\n */\n" );
+            out.write( "@SuppressWarnings( { \"unchecked\", \"rawtypes\" } )\n" );
+            out.write( "public final class " + binderName + " extends " + PACKAGE + ".GeneratedBinder< " + target + " > {\n\n" );
+
+            out.write( "    public " + binderName + "() {\n" );
+            out.write( "        super( " + target + ".class );\n" );
+            for ( Method method : methods ) {
+                String filter = method.filterName.isEmpty() ? "null, null"
+                        : ( method.filterField == null ? "null" : fieldReference( method.filterField ))
+                          + ", " + elements().getConstantExpression( method.filterName );
+                out.write( String.format( "        listener( %s, %s.class, %s.class, %s, %s, %d, %s );\n",
+                                          elements().getConstantExpression( method.method.getSimpleName().toString() ),
+                                          method.parameterType, method.eventType, method.strict, method.readOnly,
+                                          method.priority, filter ));
+            }
+            out.write( "    }\n\n" );
+
+            out.write( "    @Override\n" );
+            out.write( "    protected void invoke( " + target + " target, int index, " + EVENT + " event ) throws Exception {\n" );
+            out.write( "        switch ( index ) {\n" );
+            for ( int i = 0; i < methods.size(); i++ ) {
+                Method method = methods.get( i );
+                // Static methods are called through the listening class, which may only inherit them
+                out.write( String.format( "            case %d: %s.%s( (%s) event ); return;\n",
+                                          i, method.method.getModifiers().contains( Modifier.STATIC ) ? target : "target",
+                                          method.method.getSimpleName(), method.parameterType ));
+            }
+            out.write( "            default: throw new IndexOutOfBoundsException( String.valueOf( index ));\n" );
+            out.write( "        }\n" );
+            out.write( "    }\n\n" );
+
+            out.write( "    /**\n     * Finds this binder for its listening class.\n     */\n" );
+            out.write( "    public static final class Index implements " + INDEX + " {\n\n" );
+            out.write( "        @Override\n" );
+            out.write( "        public " + PACKAGE + ".GeneratedBinder< ? > getBinder( String className ) {\n" );
+            out.write( String.format( "            return %s.equals( className ) ? new %s() : null;\n",
+                                      elements().getConstantExpression( elements().getBinaryName( type ).toString() ), binderName ));
+            out.write( "        }\n" );
+            out.write( "    }\n" );
+            out.write( "}\n" );
+        }
+        indexes.add( qualifiedName + "$Index" );
+    }
+
+    /**
+     * Register the generated indexes, along with those registered by earlier builds into the
+     * same output, which may only have compiled some of the listening classes.
+     */
+    private void writeServices() {
+        Filer filer = processingEnv.getFiler();
+        Set< String > registered = new LinkedHashSet<String>();
+        try {
+            FileObject existing = filer.getResource( StandardLocation.CLASS_OUTPUT, "", SERVICES );
+            try ( BufferedReader in = new BufferedReader( existing.openReader( true ))) {
+                for ( String line = in.readLine(); line != null; line = in.readLine() ) {
+                    line = line.trim();
+                    if ( !line.isEmpty() ) registered.add( line );
+                }
+            }
+        } catch ( IOException e ) {
+            // Nothing was registered yet
+        }
+        registered.addAll( indexes );
+
+        try {
+            FileObject services = filer.createResource( StandardLocation.CLASS_OUTPUT, "", SERVICES );
+            try ( Writer out = services.openWriter() ) {
+                for ( String index : registered ) {
+                    out.write( index + "\n" );
+                }
+            }
+        } catch ( IOException e ) {
+            processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, "Cannot register listener indexes: " + e );   // NON-NLS
+        }
+    }
+
+    /**
+     * @return The binder's simple name: the names of the listening class and its enclosing
+     *          classes, joined by underscores
+     */
+    private static String binderName( TypeElement type ) {
+        StringBuilder name = new StringBuilder( type.getSimpleName() );
+        for ( Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement() ) {
+            name.insert( 0, '_' ).insert( 0, enclosing.getSimpleName() );
+        }
+        return name.append( "_ListenerBinder" ).toString();
+    }
+
+    /**
+     * @return The element to report a listener method's problems on: the method, if the
+     *          listening class declares it, or else the class
+     */
+    private static Element location( TypeElement type, ExecutableElement method ) {
+        return method.getEnclosingElement().equals( type ) ? method : type;
+    }
+
+    private String fieldReference( VariableElement field ) {
+        return types().erasure( field.getEnclosingElement().asType() ) + "." + field.getSimpleName();
+    }
+
+    private TypeElement superclass( TypeElement type ) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types().asElement( superclass ) : null;
+    }
+
+    private AnnotationMirror getListenerAnnotation( ExecutableElement method ) {
+        for ( AnnotationMirror annotation : method.getAnnotationMirrors() ) {
+            if ( ( (TypeElement) annotation.getAnnotationType().asElement() ).getQualifiedName().contentEquals( LISTENER )) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private Map< String, Object > annotationValues( AnnotationMirror annotation ) {
+        Map< String, Object > values = new LinkedHashMap<String, Object>();
+        for ( Map.Entry< ? extends ExecutableElement, ? extends AnnotationValue > value
+                : elements().getElementValuesWithDefaults( annotation ).entrySet() ) {
+            values.put( value.getKey().getSimpleName().toString(), value.getValue().getValue() );
+        }
+        return values;
+    }
+
+    private Elements elements() {
+        return processingEnv.getElementUtils();
+    }
+
+    private Types types() {
+        return processingEnv.getTypeUtils();
+    }
+
+    /**
+     * A checked listener method
+     */
+    private static final class Method {
+        private final ExecutableElement method;
+        private final TypeMirror parameterType;
+        private TypeMirror eventType;
+        private final boolean strict;
+        private final boolean readOnly;
+        private final int priority;
+        private final String filterName;
+        /** The filter's field, if the binder can read it */
+        private VariableElement filterField;
+
+        private Method( ExecutableElement method, TypeMirror parameterType, TypeMirror eventType, boolean strict,
+                        boolean readOnly, int priority, String filterName ) {
+            this.method = method;
+            this.parameterType = parameterType;
+            this.eventType = eventType;
+            this.strict = strict;
+            this.readOnly = readOnly;
+            this.priority = priority;
+            this.filterName = filterName;
+        }
+    }
+}
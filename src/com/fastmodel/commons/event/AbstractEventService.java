@@ -15,13 +15,747 @@
  */
 package com.fastmodel.commons.event;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Utilities and base implementations for Event Service implementations.
  *
+ * Services dispatch each event to a snapshot of their listeners, so listeners may bind,
+ * unbind and fire events on the service they are notified by.  A listener bound during a
+ * fire is first notified of the next event; a listener unbound during a fire is skipped
+ * from then on.  An event fired by a listener is dispatched as set by
+ * {@link #setNestedDispatch}, and a runaway cascade of such events can be stopped with
+ * {@link #setCascadeLimit}.
+ *
  * @author Ben Schreiber
  * @version 1.0
  */
 public abstract class AbstractEventService< Event extends IEvent > implements IEventService<Event> {
+
+    static final ListenerEntry[] NO_LISTENERS = new ListenerEntry[ 0 ];
+
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< AbstractEventService, CloneCounters > CLONE_COUNTERS =
+            AtomicReferenceFieldUpdater.newUpdater( AbstractEventService.class, CloneCounters.class, "cloneCounters" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< AbstractEventService, ReclaimQueue > RECLAIM_QUEUE =
+            AtomicReferenceFieldUpdater.newUpdater( AbstractEventService.class, ReclaimQueue.class, "reclaimQueue" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< AbstractEventService, Reentrancy > REENTRANCY =
+            AtomicReferenceFieldUpdater.newUpdater( AbstractEventService.class, Reentrancy.class, "reentrancy" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< AbstractEventService, Batching > BATCHING =
+            AtomicReferenceFieldUpdater.newUpdater( AbstractEventService.class, Batching.class, "batching" );
+
+    private volatile boolean recycleClones;
+    private volatile CloneCounters cloneCounters;
+    private volatile ReclaimQueue reclaimQueue;
+    private volatile EventMetrics metrics;
+    private volatile Batching batching;
+    /** Tracks cascades of nested fires, once nested dispatch or a cascade limit is set */
+    private volatile Reentrancy reentrancy;
+
+    /**
+     * Fire an event to all registered listeners.  Within a batch scope on the calling
+     * thread, the event is deferred until the scope is committed instead.
+     *
+     * @param event The event object to fire
+     * @return {@code true} if the event is handled and not canceled; {@code false} if it
+     *          was deferred or queued
+     */
+    public boolean fire( Event event ) {
+        Batching batching = this.batching;
+        if ( batching != null ) {
+            Batch< Event > batch = batching.current();
+            if ( batch != null ) {
+                if ( event instanceof AbstractRecyclableEvent ) ( (AbstractRecyclableEvent) event ).checkLive();
+                batch.add( event, batching );
+                return false;
+            }
+        }
+
+        Reentrancy reentrancy = this.reentrancy;
+        return reentrancy == null ? fireNow( event ) : fireNested( event, reentrancy );
+    }
+
+    /**
+     * Fire an event while tracking the calling thread's cascade of nested fires.
+     */
+    private boolean fireNested( Event event, Reentrancy reentrancy ) {
+        Cascade< Event > cascade = reentrancy.current();
+        if ( cascade.active ) {
+            if ( reentrancy.nested == NestedDispatch.QUEUE ) {
+                if ( ++cascade.count > reentrancy.limit && overflowed( event, reentrancy.limit )) return false;
+
+                if ( event instanceof AbstractRecyclableEvent ) ( (AbstractRecyclableEvent) event ).checkLive();
+                cascade.queued.add( event );
+                return false;
+            }
+
+            cascade.count++;
+            try {
+                if ( cascade.count > reentrancy.limit && overflowed( event, reentrancy.limit )) return false;
+                return fireNow( event );
+            } finally {
+                cascade.count--;
+            }
+        }
+
+        cascade.active = true;
+        cascade.count = 0;
+        try {
+            boolean handled = fireNow( event );
+            Event queued;
+            while (( queued = cascade.queued.poll() ) != null ) {
+                fireNow( queued );
+            }
+            return handled;
+        } finally {
+            cascade.active = false;
+            Event discarded;
+            while (( discarded = cascade.queued.poll() ) != null ) {
+                release( discarded );
+            }
+        }
+    }
+
+    /**
+     * Report a nested event which exceeds the cascade limit.
+     *
+     * @return {@code true} if the event has been dropped, and released
+     */
+    private boolean overflowed( Event event, int limit ) {
+        boolean dispatch = false;
+        try {
+            dispatch = cascadeOverflow( event, limit );
+        } finally {
+            if ( !dispatch ) release( event );
+        }
+        return !dispatch;
+    }
+
+    private boolean fireNow( Event event ) {
+        if ( event instanceof AbstractRecyclableEvent ) {
+            // The service owns the caller's reference to a recyclable event
+            AbstractRecyclableEvent recyclable = (AbstractRecyclableEvent) event;
+            recyclable.checkLive();
+            try {
+                return dispatch( event );
+            } finally {
+                recyclable.release();
+            }
+        }
+        return dispatch( event );
+    }
+
+    private boolean dispatch( Event event ) {
+        EventMetrics metrics = this.metrics;
+        FlightRecording recording = FlightRecording.active;
+        if ( metrics != null || recording != null && recording.isEnabled() ) return dispatch( event, metrics );
+
+        boolean handled = preFire( event );
+
+        if ( isCanceled( event )) return false;
+
+        ListenerEntry[] listeners = getDispatchList( event );
+        if ( listeners != null && listeners.length > 0 ) {
+            // Read-only listeners share a single prepared event object
+            Event shared = null;
+            int shares = 0;
+            try {
+                for ( ListenerEntry listener : listeners ) {
+                    if ( listener.isUnbound() ) continue;
+
+                    Event ev;
+                    if ( listener.isReadOnly() ) {
+                        if ( shared == null ) shared = prepEvent( event );
+                        else shares++;
+                        ev = shared;
+                    } else {
+                        ev = prepEvent( event );
+                    }
+                    if ( ev == null ) continue;
+
+                    listener.invoke( ev );
+                    boolean canceled = isCanceled( ev );
+                    if ( ev != shared ) recycle( event, ev );
+                    if ( canceled ) return false;
+                    handled = true;
+                }
+            } finally {
+                if ( shared != null ) recycle( event, shared );
+                if ( shares > 0 && event instanceof IClonableEvent ) getCloneCounters().avoided.add( shares );
+            }
+        }
+
+        handled = postFire( event, handled );
+
+        return handled;
+    }
+
+    /**
+     * Dispatch an event exactly as {@link #dispatch(IEvent)} does, recording metrics if
+     * they are enabled, and flight recorder events while a recording is running.
+     */
+    private boolean dispatch( Event event, EventMetrics metrics ) {
+        EventMetrics.TypeMetrics type = metrics == null ? null : metrics.forType( event.getClass() );
+        if ( type != null ) type.fired.increment();
+        FlightRecording recording = FlightRecording.active;
+        Object recorded = recording == null ? null : recording.beginFire();
+        FlightRecording invocations = recording != null && recording.recordsInvocations() ? recording : null;
+
+        boolean handled = preFire( event );
+        boolean canceled = isCanceled( event );
+        int listenerCount = 0;
+
+        ListenerEntry[] listeners = canceled ? null : getDispatchList( event );
+        if ( listeners != null && listeners.length > 0 ) {
+            listenerCount = listeners.length;
+            Event shared = null;
+            int shares = 0;
+            try {
+                for ( ListenerEntry listener : listeners ) {
+                    if ( listener.isUnbound() ) continue;
+
+                    Event ev;
+                    if ( listener.isReadOnly() ) {
+                        if ( shared == null ) {
+                            shared = prepEvent( event );
+                            if ( type != null && shared != null && shared != event ) type.cloned.increment();
+                        } else {
+                            shares++;
+                        }
+                        ev = shared;
+                    } else {
+                        ev = prepEvent( event );
+                        if ( type != null && ev != null && ev != event ) type.cloned.increment();
+                    }
+                    if ( ev == null ) continue;
+
+                    long start = metrics == null ? 0 : System.nanoTime();
+                    Object invocation = invocations == null ? null : invocations.beginInvocation();
+                    listener.invoke( ev );
+                    if ( invocation != null ) invocations.endInvocation( invocation, listener, ev );
+                    if ( metrics != null ) metrics.invoked( listener, type, ev, System.nanoTime() - start );
+
+                    canceled = isCanceled( ev );
+                    if ( ev != shared ) recycle( event, ev );
+                    if ( canceled ) break;
+                    handled = true;
+                }
+            } finally {
+                if ( shared != null ) recycle( event, shared );
+                if ( shares > 0 && event instanceof IClonableEvent ) getCloneCounters().avoided.add( shares );
+            }
+        }
+
+        if ( canceled ) {
+            handled = false;
+            if ( type != null ) type.cancelled.increment();
+        } else {
+            handled = postFire( event, handled );
+            if ( type != null && handled ) type.handled.increment();
+        }
+        if ( recorded != null ) recording.endFire( recorded, event, listenerCount, handled, canceled );
+
+        return handled;
+    }
+
+    /**
+     * Fire a batch of events.
+     *
+     * @param events The event objects to fire, in order
+     * @return The result of firing each event: bit {@code i} is set if event {@code i}
+     *          is handled and not canceled
+     *
+     * @see #fireAll(IEvent[])
+     */
+    public BitSet fireAll( Collection< ? extends Event > events ) {
+        return fireAll( new ArrayList< Event >( events ));
+    }
+
+    /**
+     * Fire a batch of events.  The events are grouped by the listeners they are dispatched
+     * to (usually, by event class), and each listener is passed all of its events in a group
+     * before the next listener is invoked; an {@link IBatchListener} receives them in a single call.
+     * Consequently, {@link #preFire} is invoked for every event before any listener,
+     * and {@link #postFire} for every event after all listeners.  Cancellation still
+     * applies per event: once a listener cancels an event, no further listeners receive it.
+     *
+     * @param events The event objects to fire, in order
+     * @return The result of firing each event: bit {@code i} is set if event {@code i}
+     *          is handled and not canceled
+     */
+    public BitSet fireAll( Event[] events ) {
+        return fireAll( Arrays.asList( events ));
+    }
+
+    private BitSet fireAll( List< Event > events ) {
+        int count = events.size();
+        for ( Event event : events ) {
+            if ( event instanceof AbstractRecyclableEvent ) ( (AbstractRecyclableEvent) event ).checkLive();
+        }
+
+        // Events which have been passed to fire(), which releases them itself
+        boolean[] fired = new boolean[ count ];
+        try {
+            return dispatchAll( events, fired );
+        } finally {
+            for ( int i = 0; i < count; i++ ) {
+                if ( !fired[ i ] && events.get( i ) instanceof AbstractRecyclableEvent ) {
+                    ( (AbstractRecyclableEvent) events.get( i )).release();
+                }
+            }
+        }
+    }
+
+    private BitSet dispatchAll( List< Event > events, boolean[] fired ) {
+        int count = events.size();
+        BitSet results = new BitSet( count );
+
+        // Events the service doesn't give dispatch lists for are fired individually, before
+        // preFire() is invoked for the rest, so that it is only invoked once per event
+        ListenerEntry[][] dispatchLists = new ListenerEntry[ count ][];
+        for ( int i = 0; i < count; i++ ) {
+            dispatchLists[ i ] = getDispatchList( events.get( i ));
+            if ( dispatchLists[ i ] == null ) {
+                fired[ i ] = true;
+                results.set( i, fire( events.get( i )));
+            }
+        }
+
+        // Events which are still live (not cancelled), and whether they have been handled yet
+        boolean[] live = new boolean[ count ];
+        boolean[] handled = new boolean[ count ];
+        for ( int i = 0; i < count; i++ ) {
+            if ( fired[ i ] ) continue;
+            handled[ i ] = preFire( events.get( i ));
+            live[ i ] = !isCanceled( events.get( i ));
+        }
+
+        // Group the events by the listeners they are dispatched to, in order of first
+        // appearance.  Services cache their dispatch lists, so events of the same class
+        // share a group.
+        Map< ListenerEntry[], List< Integer >> groups = new IdentityHashMap<ListenerEntry[], List<Integer>>();
+        List< ListenerEntry[] > ordered = new ArrayList<ListenerEntry[]>();
+        for ( int i = 0; i < count; i++ ) {
+            if ( !live[ i ] ) continue;
+            ListenerEntry[] listeners = dispatchLists[ i ];
+            List< Integer > group = groups.get( listeners );
+            if ( group == null ) {
+                group = new ArrayList<Integer>();
+                groups.put( listeners, group );
+                ordered.add( listeners );
+            }
+            group.add( i );
+        }
+
+        // The event objects shared by read-only listeners, prepared on first use
+        List< Event > shared = new ArrayList<Event>( Collections.<Event>nCopies( count, null ));
+        int[] shares = new int[ 1 ];
+        try {
+            for ( ListenerEntry[] listeners : ordered ) {
+                List< Integer > group = groups.get( listeners );
+                for ( ListenerEntry listener : listeners ) {
+                    IListener< ? > target = listener.getListener();
+                    if ( target instanceof IBatchListener ) {
+                        @SuppressWarnings( "unchecked" )
+                        IBatchListener< Event > batchListener = (IBatchListener< Event >) target;
+                        dispatchBatch( listener, batchListener, events, group, live, handled, shared, shares );
+                        continue;
+                    }
+
+                    for ( int i : group ) {
+                        if ( !live[ i ] || listener.isUnbound() ) continue;
+
+                        Event ev = prepare( listener, events.get( i ), shared, i, shares );
+                        if ( ev == null ) continue;
+
+                        listener.invoke( ev );
+                        if ( isCanceled( ev )) live[ i ] = false;
+                        else handled[ i ] = true;
+                        if ( ev != shared.get( i )) recycle( events.get( i ), ev );
+                    }
+                }
+            }
+        } finally {
+            for ( int i = 0; i < count; i++ ) {
+                if ( shared.get( i ) != null ) recycle( events.get( i ), shared.get( i ));
+            }
+            if ( shares[ 0 ] > 0 ) getCloneCounters().avoided.add( shares[ 0 ] );
+        }
+
+        for ( int i = 0; i < count; i++ ) {
+            if ( live[ i ] ) results.set( i, postFire( events.get( i ), handled[ i ] ));
+        }
+
+        // Batches only record event counts; listener latencies are recorded by fire()
+        EventMetrics metrics = this.metrics;
+        if ( metrics != null ) {
+            for ( int i = 0; i < count; i++ ) {
+                if ( fired[ i ] ) continue;
+                EventMetrics.TypeMetrics type = metrics.forType( events.get( i ).getClass() );
+                type.fired.increment();
+                if ( !live[ i ] ) type.cancelled.increment();
+                else if ( results.get( i )) type.handled.increment();
+            }
+        }
+        return results;
+    }
+
+    private void dispatchBatch( ListenerEntry listener, IBatchListener< Event > batchListener, List< Event > events,
+                                List< Integer > group, boolean[] live, boolean[] handled, List< Event > shared, int[] shares ) {
+        List< Event > prepared = new ArrayList<Event>( group.size() );
+        List< Integer > indexes = new ArrayList<Integer>( group.size() );
+        for ( int i : group ) {
+            if ( !live[ i ] || listener.isUnbound() ) continue;
+            Event ev = prepare( listener, events.get( i ), shared, i, shares );
+            if ( ev != null ) {
+                prepared.add( ev );
+                indexes.add( i );
+            }
+        }
+        if ( prepared.isEmpty() ) return;
+
+        batchListener.handleAll( Collections.unmodifiableList( prepared ));
+
+        for ( int j = 0; j < prepared.size(); j++ ) {
+            int i = indexes.get( j );
+            Event ev = prepared.get( j );
+            if ( isCanceled( ev )) live[ i ] = false;
+            else handled[ i ] = true;
+            if ( ev != shared.get( i )) recycle( events.get( i ), ev );
+        }
+    }
+
+    /**
+     * Prepare an event object for a listener within a batch, sharing one object per event
+     * between read-only listeners.
+     */
+    private Event prepare( ListenerEntry listener, Event event, List< Event > shared, int index, int[] shares ) {
+        if ( !listener.isReadOnly() ) return prepEvent( event );
+
+        Event ev = shared.get( index );
+        if ( ev == null ) {
+            ev = prepEvent( event );
+            shared.set( index, ev );
+        } else if ( event instanceof IClonableEvent ) {
+            shares[ 0 ]++;
+        }
+        return ev;
+    }
+
+    /**
+     * Set how events fired by listeners, on the same thread, while this service is
+     * dispatching an event, are dispatched.  Until nested dispatch or a cascade limit is
+     * set, firing events doesn't track nested fires, and costs nothing extra.
+     *
+     * @param nested The nested dispatch
+     */
+    public void setNestedDispatch( NestedDispatch nested ) {
+        if ( nested == null ) throw new NullPointerException();
+        getReentrancy().nested = nested;
+    }
+
+    /**
+     * @return How nested events are dispatched
+     */
+    public NestedDispatch getNestedDispatch() {
+        Reentrancy reentrancy = this.reentrancy;
+        return reentrancy == null ? NestedDispatch.RECURSE : reentrancy.nested;
+    }
+
+    /**
+     * Limit cascades of nested fires.  Once a cascade exceeds the limit, each further
+     * nested event is passed to {@link #cascadeOverflow}.  With {@link NestedDispatch#RECURSE},
+     * the limit applies to the depth of nesting; with {@link NestedDispatch#QUEUE}, to the
+     * number of events fired in a cascade.
+     *
+     * @param limit The limit, or {@link Integer#MAX_VALUE} for no limit
+     */
+    public void setCascadeLimit( int limit ) {
+        if ( limit < 1 ) throw new IllegalArgumentException( "Cascade limit must be positive: " + limit );   // NON-NLS
+        getReentrancy().limit = limit;
+    }
+
+    /**
+     * @return The cascade limit
+     */
+    public int getCascadeLimit() {
+        Reentrancy reentrancy = this.reentrancy;
+        return reentrancy == null ? Integer.MAX_VALUE : reentrancy.limit;
+    }
+
+    /**
+     * Invoked when a nested event exceeds the cascade limit.  Override this method to
+     * report runaway cascades without failing them.
+     *
+     * @param event The nested event
+     * @param limit The cascade limit
+     * @return {@code true} to dispatch the event anyway, {@code false} to drop it
+     * @throws EventCascadeOverflow By default, which propagates to the listener which fired
+     *                              the event, and unless caught, out of the outermost fire
+     */
+    protected boolean cascadeOverflow( Event event, int limit ) {
+        throw new EventCascadeOverflow( event, limit );
+    }
+
+    private Reentrancy getReentrancy() {
+        Reentrancy reentrancy = this.reentrancy;
+        if ( reentrancy == null ) {
+            REENTRANCY.compareAndSet( this, null, new Reentrancy() );
+            reentrancy = this.reentrancy;
+        }
+        return reentrancy;
+    }
+
+    /**
+     * Begin a batch scope on the calling thread.  Until the scope is committed, events
+     * fired on this thread through {@link #fire} are buffered rather than dispatched, and
+     * merged by the {@link #setMerger mergers} set for their types.  Scopes nest: only
+     * committing the outermost scope delivers the buffered events.  Other threads fire
+     * events as usual meanwhile.
+     *
+     * Every call must be matched by a call to {@link #commit()} or {@link #cancelBatch()},
+     * usually in a {@code finally} block.
+     */
+    public void beginBatch() {
+        Batching batching = getBatching();
+        Batch< Event > batch = batching.current();
+        if ( batch == null ) {
+            batch = new Batch<Event>();
+            batching.scopes.set( batch );
+        }
+        batch.depth++;
+    }
+
+    /**
+     * End a batch scope.  Ending the outermost scope delivers the buffered events, in the
+     * order they were first fired, through {@link #fireAll(Collection)}: {@link #preFire}
+     * is invoked for every delivered event before any listener, and {@link #postFire}
+     * after all listeners, as for any batch.  Events fired by listeners during delivery
+     * are dispatched immediately.
+     *
+     * A deferred event is only cancelled when it is delivered: by {@code preFire}, or by
+     * a listener, which stops that (possibly merged) event reaching further listeners.  A
+     * cancellable event which is already cancelled when the scope is committed is not
+     * delivered at all.  {@link #cancelBatch()} discards all of the buffered events.
+     *
+     * @return The number of events delivered, after merging, or {@code 0} if an inner
+     *          scope was ended, or the batch was cancelled
+     * @throws IllegalStateException If the calling thread has no batch scope
+     */
+    public int commit() {
+        Batch< Event > batch = endScope();
+        if ( batch == null ) return 0;
+
+        fireAll( batch.events );
+        return batch.events.size();
+    }
+
+    /**
+     * End a batch scope, and discard every event buffered in the whole batch, including
+     * events fired within enclosing scopes.  The enclosing scopes must still be ended,
+     * but deliver nothing.
+     *
+     * @throws IllegalStateException If the calling thread has no batch scope
+     */
+    public void cancelBatch() {
+        Batching batching = this.batching;
+        Batch< Event > batch = batching == null ? null : batching.current();
+        if ( batch == null ) throw new IllegalStateException( "No batch scope" );   // NON-NLS
+
+        batch.cancelled = true;
+        for ( Event event : batch.events ) release( event );
+        batch.events.clear();
+        endScope();
+    }
+
+    /**
+     * @return {@code true} if the calling thread is within a batch scope
+     */
+    public boolean isBatching() {
+        Batching batching = this.batching;
+        return batching != null && batching.current() != null;
+    }
+
+    /**
+     * Set the merger for events fired within batch scopes.  An event's merger is the one
+     * set for its most specific class or interface.  Each merger is offered the event it
+     * last buffered in the batch, and the new event.
+     *
+     * @param eventClass The type of events to merge
+     * @param merger     The merger, or {@code null} to remove the merger for the type
+     */
+    public void setMerger( Class< ? extends Event > eventClass, IEventMerger< Event > merger ) {
+        if ( eventClass == null ) throw new NullPointerException();
+
+        Batching batching = getBatching();
+        synchronized ( batching ) {
+            Map< Class<?>, IEventMerger< ? >> updated = new LinkedHashMap<Class<?>, IEventMerger<?>>( batching.mergers.byType );
+            if ( merger == null ) updated.remove( eventClass );
+            else updated.put( eventClass, merger );
+            batching.mergers = new Mergers( updated );
+        }
+    }
+
+    /**
+     * End the calling thread's innermost batch scope.
+     *
+     * @return The batch, if the outermost scope was ended and its events should be
+     *          delivered, or {@code null}
+     */
+    private Batch< Event > endScope() {
+        Batching batching = this.batching;
+        Batch< Event > batch = batching == null ? null : batching.current();
+        if ( batch == null ) throw new IllegalStateException( "No batch scope" );   // NON-NLS
+
+        if ( --batch.depth > 0 ) return null;
+        batching.scopes.remove();
+        return batch.cancelled ? null : batch;
+    }
+
+    private Batching getBatching() {
+        Batching batching = this.batching;
+        if ( batching == null ) {
+            BATCHING.compareAndSet( this, null, new Batching() );
+            batching = this.batching;
+        }
+        return batching;
+    }
+
+    private static void release( IEvent event ) {
+        if ( event instanceof AbstractRecyclableEvent ) ( (AbstractRecyclableEvent) event ).release();
+    }
+
+    /**
+     * Get the listeners to which an event should be dispatched, in dispatch order.
+     * Services which override {@link #fire} need not implement this method.
+     *
+     * @param event The fired event object
+     * @return The listeners.  The array must not be modified.  {@code null} if the service
+     *          doesn't use this method, in which case batches are dispatched through {@link #fire}.
+     */
+    ListenerEntry[] getDispatchList( Event event ) {
+        return null;
+    }
+
+    /**
+     * Prepare the event object and pass it to a single listener.
+     *
+     * @param listener A listener from {@link #getDispatchList}
+     * @param event    The original event object
+     * @return The event object that was passed to the listener, or {@code null} if the
+     *          listener wasn't invoked.
+     */
+    Event dispatchTo( ListenerEntry listener, Event event ) {
+        if ( listener.isUnbound() ) return null;
+
+        Event ev = prepEvent( event );
+        if ( ev != null ) listener.invoke( ev );
+        return ev;
+    }
+
+    /**
+     * Enable or disable dispatch metrics.  While no metrics are set, firing events costs
+     * nothing extra.
+     *
+     * @param metrics The metrics to record to, or {@code null} to stop recording metrics
+     */
+    public void setMetrics( EventMetrics metrics ) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The metrics being recorded, or {@code null} if metrics are disabled
+     */
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the queue on which weakly bound listeners are reclaimed, creating it if necessary.
+     *
+     * @return The reclaim queue
+     */
+    ReclaimQueue getReclaimQueue() {
+        ReclaimQueue queue = reclaimQueue;
+        if ( queue == null ) {
+            RECLAIM_QUEUE.compareAndSet( this, null, new ReclaimQueue() );
+            queue = reclaimQueue;
+        }
+        return queue;
+    }
+
+    /**
+     * Unbind any weakly bound listeners which have been collected since the last call.
+     *
+     * @return The number of listeners which were unbound
+     */
+    int reclaim() {
+        ReclaimQueue queue = reclaimQueue;
+        return queue == null ? 0 : queue.reclaim();
+    }
+
+    /**
+     * @return The number of weakly bound listeners which have been unbound because they
+     *          were garbage collected
+     */
+    public long getReclaimedCount() {
+        ReclaimQueue queue = reclaimQueue;
+        return queue == null ? 0 : queue.getReclaimed();
+    }
+
+    /**
+     * Enable or disable clone recycling.  When enabled, the clones made by {@link #prepEvent}
+     * of events implementing {@link IReusableEvent} are returned to a per-type free list
+     * once the listener has returned, and reused for later events of the same type.
+     * Only enable recycling if listeners never keep a reference to the event objects
+     * passed to them.
+     *
+     * @param recycleClones {@code true} to recycle clones
+     */
+    public void setRecycleClones( boolean recycleClones ) {
+        this.recycleClones = recycleClones;
+    }
+
+    /**
+     * @return {@code true} if clone recycling is enabled
+     */
+    public boolean isRecycleClones() {
+        return recycleClones;
+    }
+
+    /**
+     * @return The number of times {@link #prepEvent} has cloned an event object
+     */
+    public long getCloneCount() {
+        CloneCounters counters = cloneCounters;
+        return counters == null ? 0 : counters.cloned.sum();
+    }
+
+    /**
+     * @return The number of clones which were avoided, either because a read-only
+     *          listener shared a clone, or because a recycled clone was reused
+     */
+    public long getClonesAvoided() {
+        CloneCounters counters = cloneCounters;
+        return counters == null ? 0 : counters.avoided.sum();
+    }
+
     /**
      * Check if the event is a cancellable event which has been cancelled.
      *
@@ -72,11 +806,21 @@ public abstract class AbstractEventService< Event extends IEvent > implements IE
      * @return The instance of the event object to pass to the listener, or {@code null} if
      *          cloning failed.  {@code null} may also be returned to suppress handler invocation.
      */
+    @SuppressWarnings( "unchecked" )
     protected Event prepEvent( Event event ) {
         if ( event instanceof IClonableEvent ) {
+            if ( recycleClones && event instanceof IReusableEvent ) {
+                IReusableEvent recycled = (IReusableEvent) FreeList.forClass( event.getClass() ).take();
+                if ( recycled != null ) {
+                    recycled.copyFrom( (IReusableEvent) event );
+                    getCloneCounters().avoided.increment();
+                    return (Event) recycled;
+                }
+            }
             try {
-                //noinspection unchecked
-                return (Event) ( (IClonableEvent) event ).clone();
+                Event clone = (Event) ( (IClonableEvent) event ).clone();
+                getCloneCounters().cloned.increment();
+                return clone;
             } catch ( CloneNotSupportedException e ) {
                 return null;
             }
@@ -84,4 +828,153 @@ public abstract class AbstractEventService< Event extends IEvent > implements IE
             return event;
         }
     }
+
+    /**
+     * Return a prepared event object to its free list, if clone recycling is enabled.
+     *
+     * @param event    The original event object
+     * @param prepared The object prepared from it by {@link #prepEvent}
+     */
+    private void recycle( Event event, Event prepared ) {
+        if ( recycleClones && prepared != event && prepared instanceof IReusableEvent ) {
+            FreeList.forClass( prepared.getClass() ).give( prepared );
+        }
+    }
+
+    private CloneCounters getCloneCounters() {
+        CloneCounters counters = cloneCounters;
+        if ( counters == null ) {
+            CLONE_COUNTERS.compareAndSet( this, null, new CloneCounters() );
+            counters = cloneCounters;
+        }
+        return counters;
+    }
+
+    /**
+     * Counters for event cloning, created when an event is first cloned
+     */
+    private static final class CloneCounters {
+        private final LongAdder cloned = new LongAdder();
+        private final LongAdder avoided = new LongAdder();
+    }
+
+    /**
+     * The nested dispatch settings of a service, and the cascade of each thread, created
+     * when they are first set
+     */
+    private static final class Reentrancy {
+        private volatile NestedDispatch nested = NestedDispatch.RECURSE;
+        private volatile int limit = Integer.MAX_VALUE;
+        private final ThreadLocal< Cascade< ? >> cascades = new ThreadLocal<Cascade<?>>();
+
+        < Event extends IEvent > Cascade< Event > current() {
+            @SuppressWarnings( "unchecked" )
+            Cascade< Event > cascade = (Cascade< Event >) cascades.get();
+            if ( cascade == null ) {
+                cascade = new Cascade<Event>();
+                cascades.set( cascade );
+            }
+            return cascade;
+        }
+    }
+
+    /**
+     * A thread's cascade of nested fires, which is reused for each outermost fire
+     */
+    private static final class Cascade< Event extends IEvent > {
+        private final ArrayDeque< Event > queued = new ArrayDeque<Event>();
+        /** {@code true} while an outermost fire is under way */
+        private boolean active;
+        /** The nesting depth, or the number of events queued, in the current cascade */
+        private int count;
+    }
+
+    /**
+     * The batch settings of a service, and its batch scopes, created when batching is
+     * first used
+     */
+    private static final class Batching {
+        private final ThreadLocal< Batch< ? >> scopes = new ThreadLocal<Batch<?>>();
+        /** Replaced as a whole when a merger is set, so that no stale resolution survives */
+        private volatile Mergers mergers = new Mergers( Collections.<Class<?>, IEventMerger<?>>emptyMap() );
+
+        @SuppressWarnings( "unchecked" )
+        < Event extends IEvent > Batch< Event > current() {
+            return (Batch< Event >) scopes.get();
+        }
+
+        IEventMerger< ? > getMerger( Class<?> eventClass ) {
+            return mergers.get( eventClass );
+        }
+    }
+
+    /**
+     * The mergers set for a service, with the merger resolved for each event class.  The
+     * resolutions are only ever made from the mergers of the same instance, so a resolution
+     * racing with {@link #setMerger} is cached in the replaced instance, and discarded.
+     */
+    private static final class Mergers {
+        /** Cached in {@link #resolved} for types without a merger */
+        private static final IEventMerger< IEvent > NONE = ( pending, next ) -> null;
+
+        private final Map< Class<?>, IEventMerger< ? >> byType;
+        private final ConcurrentMap< Class<?>, IEventMerger< ? >> resolved = new ConcurrentHashMap<Class<?>, IEventMerger<?>>();
+
+        private Mergers( Map< Class<?>, IEventMerger< ? >> byType ) {
+            this.byType = byType;
+        }
+
+        IEventMerger< ? > get( Class<?> eventClass ) {
+            if ( byType.isEmpty() ) return null;
+
+            IEventMerger< ? > merger = resolved.get( eventClass );
+            if ( merger == null ) {
+                Class<?> best = null;
+                for ( Class<?> type : byType.keySet() ) {
+                    if ( type.isAssignableFrom( eventClass ) && ( best == null || best.isAssignableFrom( type ) && best != type )) {
+                        best = type;
+                    }
+                }
+                merger = best == null ? NONE : byType.get( best );
+                resolved.putIfAbsent( eventClass, merger );
+            }
+            return merger == NONE ? null : merger;
+        }
+    }
+
+    /**
+     * The events buffered by a thread's batch scope
+     */
+    private static final class Batch< Event extends IEvent > {
+        private final List< Event > events = new ArrayList<Event>();
+        /** The position of the event each merger last buffered or returned */
+        private final Map< IEventMerger< ? >, Integer > pending = new IdentityHashMap<IEventMerger<?>, Integer>();
+        private int depth;
+        private boolean cancelled;
+
+        void add( Event event, Batching batching ) {
+            if ( cancelled ) {
+                release( event );
+                return;
+            }
+
+            @SuppressWarnings( "unchecked" )
+            IEventMerger< Event > merger = (IEventMerger< Event >) batching.getMerger( event.getClass() );
+            if ( merger != null ) {
+                Integer position = pending.get( merger );
+                if ( position != null ) {
+                    Event previous = events.get( position );
+                    Event merged = merger.merge( previous, event );
+                    if ( merged != null ) {
+                        if ( merged != previous ) release( previous );
+                        if ( merged != event ) release( event );
+                        events.set( position, merged );
+                        return;
+                    }
+                }
+                pending.put( merger, events.size() );
+            }
+            events.add( event );
+        }
+    }
 }
@@ -0,0 +1,212 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * The base implementation of the primitive event services, which fire primitive values
+ * rather than event objects, so that firing allocates nothing.  Listeners are held in an
+ * immutable array which is replaced (copy-on-write) whenever a listener is bound, as in
+ * {@link SimpleEventService}.  Unbinding a listener finds it through an identity index
+ * and only marks it as unbound; the unbound listeners are purged from the array once
+ * they make up half of it.
+ *
+ * Primitive values can't be cancelled, so a listener cancels the value it is passed by
+ * returning {@code false}.
+ *
+ * @param <Listener> The listener type
+ *
+ * @version 1.0
+ */
+public abstract class AbstractPrimitiveEventService< Listener > {
+
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< AbstractPrimitiveEventService, ListenerEntry[] > LISTENERS =
+            AtomicReferenceFieldUpdater.newUpdater( AbstractPrimitiveEventService.class, ListenerEntry[].class, "listeners" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< AbstractPrimitiveEventService, IPrimitiveEventSocket > SOCKET =
+            AtomicReferenceFieldUpdater.newUpdater( AbstractPrimitiveEventService.class, IPrimitiveEventSocket.class, "socket" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< AbstractPrimitiveEventService, ReclaimQueue > RECLAIM_QUEUE =
+            AtomicReferenceFieldUpdater.newUpdater( AbstractPrimitiveEventService.class, ReclaimQueue.class, "reclaimQueue" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicIntegerFieldUpdater< AbstractPrimitiveEventService > UNBOUND_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater( AbstractPrimitiveEventService.class, "unboundCount" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< AbstractPrimitiveEventService, IdentityIndex > IDENTITIES =
+            AtomicReferenceFieldUpdater.newUpdater( AbstractPrimitiveEventService.class, IdentityIndex.class, "identities" );
+
+    private volatile ListenerEntry[]                    listeners = AbstractEventService.NO_LISTENERS;
+    private volatile IPrimitiveEventSocket< Listener >  socket;
+    private volatile ReclaimQueue                       reclaimQueue;
+    /** The number of unbound listeners still in the listener array */
+    private volatile int                                unboundCount;
+    /** The bound listeners, by identity.  Created when first needed. */
+    private volatile IdentityIndex                      identities;
+
+    AbstractPrimitiveEventService() {
+    }
+
+    /**
+     * Get the socket on which to register listeners for the service's values.
+     *
+     * @return An event socket
+     */
+    public final IPrimitiveEventSocket< Listener > getSocket() {
+        if ( socket == null ) {
+            SOCKET.compareAndSet( this, null, new Socket() );
+        }
+        return socket;
+    }
+
+    /**
+     * @return The listeners, in dispatch order.  The array must not be modified, and may
+     *          contain entries which have been unbound since.
+     */
+    final ListenerEntry[] getDispatchList() {
+        ReclaimQueue queue = reclaimQueue;
+        if ( queue != null ) queue.reclaim();
+        return listeners;
+    }
+
+    /**
+     * Record that a listener in the listener array has been unbound, and purge the unbound
+     * listeners once they make up half of the array.
+     */
+    private void listenerUnbound() {
+        if ( UNBOUND_COUNT.incrementAndGet( this ) * 2 < listeners.length ) return;
+
+        ListenerEntry[] current, updated;
+        do {
+            current = listeners;
+            updated = liveEntries( current );
+        } while ( updated != current && !LISTENERS.compareAndSet( this, current, updated ));
+        UNBOUND_COUNT.addAndGet( this, updated.length - current.length );
+    }
+
+    private static ListenerEntry[] liveEntries( ListenerEntry[] entries ) {
+        int live = 0;
+        for ( ListenerEntry entry : entries ) {
+            if ( !entry.isUnbound() ) live++;
+        }
+        if ( live == entries.length ) return entries;
+        if ( live == 0 ) return AbstractEventService.NO_LISTENERS;
+
+        ListenerEntry[] result = new ListenerEntry[ live ];
+        int i = 0;
+        for ( ListenerEntry entry : entries ) {
+            if ( !entry.isUnbound() ) result[ i++ ] = entry;
+        }
+        return result;
+    }
+
+    private ReclaimQueue getReclaimQueue() {
+        ReclaimQueue queue = reclaimQueue;
+        if ( queue == null ) {
+            RECLAIM_QUEUE.compareAndSet( this, null, new ReclaimQueue() );
+            queue = reclaimQueue;
+        }
+        return queue;
+    }
+
+    private IdentityIndex getIdentities() {
+        IdentityIndex index = identities;
+        if ( index == null ) {
+            IDENTITIES.compareAndSet( this, null, new IdentityIndex() );
+            index = identities;
+        }
+        return index;
+    }
+
+    /**
+     * A listener in the listener array
+     */
+    private final class Entry extends ListenerEntry {
+
+        private Entry( Listener listener, int priority, ReclaimQueue queue ) {
+            super( listener, false, priority, queue );
+        }
+
+        @Override
+        void closed() {
+            identities.remove( this );
+            listenerUnbound();
+        }
+
+        @Override
+        void reclaimed() {
+            closed();
+        }
+    }
+
+    private class Socket implements IPrimitiveEventSocket< Listener > {
+
+        public Listener bind( Listener listener ) {
+            return bind( listener, 0 );
+        }
+
+        public Listener bind( Listener listener, int priority ) {
+            return bind( new Entry( listener, priority, null ), listener );
+        }
+
+        public Listener bindWeak( Listener listener ) {
+            return bind( new Entry( listener, 0, getReclaimQueue() ), listener );
+        }
+
+        /**
+         * Insert an entry into the listener array, purging any unbound listeners.
+         */
+        private Listener bind( Entry entry, Listener listener ) {
+            if ( listener == null ) throw new NullPointerException();
+
+            ReclaimQueue queue = reclaimQueue;
+            if ( queue != null ) queue.reclaim();
+            getIdentities().add( entry );
+            ListenerEntry[] current, updated;
+            ListenerEntry[] live;
+            do {
+                current = listeners;
+                live = liveEntries( current );
+                int index = ListenerEntry.insertionPoint( Arrays.asList( live ), entry.getPriority() );
+                updated = new ListenerEntry[ live.length + 1 ];
+                System.arraycopy( live, 0, updated, 0, index );
+                updated[ index ] = entry;
+                System.arraycopy( live, index, updated, index + 1, live.length - index );
+            } while ( !LISTENERS.compareAndSet( AbstractPrimitiveEventService.this, current, updated ));
+            UNBOUND_COUNT.addAndGet( AbstractPrimitiveEventService.this, live.length - current.length );
+            return listener;
+        }
+
+        /**
+         * Remove a previously registered listener.  The listener is found through the
+         * identity index, and only marked as unbound.
+         *
+         * @param listener The listener to remove
+         * @return {@code true} if the specified listener was actually removed.
+         */
+        public boolean unbind( Listener listener ) {
+            IdentityIndex index = identities;
+            ListenerEntry entry = index == null ? null : index.unbind( listener, bound -> true );
+            if ( entry == null ) return false;
+
+            listenerUnbound();
+            return true;
+        }
+    }
+}
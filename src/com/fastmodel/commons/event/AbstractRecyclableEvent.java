@@ -0,0 +1,124 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A base class for Event objects which are obtained from an {@link EventPool}, and
+ * returned to it once they are no longer in use, so that firing them allocates nothing.
+ *
+ * Recyclable events are reference counted.  A newly obtained event holds a single
+ * reference, which is owned by the caller and passed on to the event service when the
+ * event is fired: the service releases it once dispatch finishes.  A listener which
+ * needs the event object after it returns (eg. to process it asynchronously) must call
+ * {@link #retain()}, and {@link #release()} when it is done with it.  Once the last
+ * reference is released, the event is {@link #reset() reset} and returned to its pool.
+ *
+ * Recyclable events must not also implement {@link IClonableEvent}.
+ *
+ * @version 1.0
+ */
+abstract public class AbstractRecyclableEvent implements IEvent {
+
+	private static final AtomicIntegerFieldUpdater< AbstractRecyclableEvent > REF_COUNT =
+			AtomicIntegerFieldUpdater.newUpdater( AbstractRecyclableEvent.class, "refCount" );
+
+	private volatile int refCount = 1;
+	/** The pool which created the event, or {@code null} if it was created directly */
+	EventPool< ? > pool;
+	/** Where the event was last released, recorded in debug mode */
+	private volatile Throwable releasedAt;
+
+	/**
+	 * Add a reference to the event, which must later be released with {@link #release()}.
+	 *
+	 * @return This event object
+	 *
+	 * @throws IllegalStateException if the event has already been released
+	 */
+	public AbstractRecyclableEvent retain() {
+		int count;
+		do {
+			count = refCount;
+			if ( count <= 0 ) throw released();
+		} while ( !REF_COUNT.compareAndSet( this, count, count + 1 ));
+		return this;
+	}
+
+	/**
+	 * Release a reference to the event.  When the last reference is released, the event
+	 * object is reset and returned to its pool, and must no longer be used.
+	 *
+	 * @return {@code true} if this was the last reference
+	 *
+	 * @throws IllegalStateException if the event has already been released
+	 */
+	public boolean release() {
+		int count;
+		do {
+			count = refCount;
+			if ( count <= 0 ) throw released();
+		} while ( !REF_COUNT.compareAndSet( this, count, count - 1 ));
+
+		if ( count > 1 ) return false;
+
+		if ( EventPool.isDebug() ) {
+			releasedAt = new Throwable( "Released here" );   // NON-NLS
+		}
+		if ( pool != null ) {
+			pool.recycle( this );
+		}
+		return true;
+	}
+
+	/**
+	 * @return {@code true} if all references to the event have been released
+	 */
+	public boolean isReleased() {
+		return refCount <= 0;
+	}
+
+	/**
+	 * Check that the event hasn't been released.  Subclasses may call this from their
+	 * accessors to catch use of an event after its release.  In {@link EventPool#isDebug()
+	 * debug mode}, released events are never reused, so any such use is reliably detected.
+	 *
+	 * @throws IllegalStateException if the event has been released
+	 */
+	protected final void checkLive() {
+		if ( refCount <= 0 ) throw released();
+	}
+
+	/**
+	 * Clear the state of the event before it is returned to its pool.  The default
+	 * implementation does nothing.
+	 */
+	protected void reset() {
+	}
+
+	/**
+	 * Reinitialize a recycled event as a newly obtained one.
+	 */
+	final void revive() {
+		releasedAt = null;
+		refCount = 1;
+	}
+
+	private IllegalStateException released() {
+		return new IllegalStateException( "Event used after release: " + getClass().getName(), releasedAt );   // NON-NLS
+	}
+}
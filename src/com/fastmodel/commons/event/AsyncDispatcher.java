@@ -0,0 +1,298 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Queues events for an {@link IAsyncEventService} and dispatches them on an executor,
+ * one event at a time and in FIFO order.
+ *
+ * At most one drain task is scheduled on the executor at any time.  In
+ * {@link IAsyncEventService.Dispatch#LISTENER} mode, the drain task hands the listeners
+ * of an event to the executor and ends; it is rescheduled once they have all returned.
+ *
+ * The queue is unbounded unless a capacity is given, in which case the service's
+ * {@link OverflowSettings} decide what happens to events fired while it is full.  An
+ * event rejected by the queue is released, and its future completed exceptionally, as
+ * are the queued events if the executor rejects the drain task.  A thread dispatching
+ * the service's events, whether the drain task or a listener, fails rather than
+ * blocking on a full queue, since it would be waiting for itself.
+ *
+ * @param <Event> The root event type of the service
+ *
+ * @version 1.0
+ */
+final class AsyncDispatcher< Event extends IEvent > implements Runnable, EventQueue.Owner {
+
+    private final AbstractEventService< Event > service;
+    private final Executor executor;
+    private final IAsyncEventService.Dispatch dispatch;
+
+    private final EventQueue queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** The dispatcher whose events the current thread is dispatching, if any */
+    private static final ThreadLocal< AsyncDispatcher< ? >> DISPATCHING = new ThreadLocal<AsyncDispatcher<?>>();
+
+    /**
+     * Create a dispatcher with an unbounded queue.
+     */
+    AsyncDispatcher( AbstractEventService< Event > service, Executor executor, IAsyncEventService.Dispatch dispatch ) {
+        if ( executor == null || dispatch == null ) throw new NullPointerException();
+        this.service = service;
+        this.executor = executor;
+        this.dispatch = dispatch;
+        this.queue = new EventQueue( this );
+    }
+
+    /**
+     * Create a dispatcher with a bounded queue.
+     *
+     * @param capacity The number of events the queue can hold, which must be a power of two
+     * @param overflow What to do with events fired while the queue is full
+     */
+    AsyncDispatcher( AbstractEventService< Event > service, Executor executor, IAsyncEventService.Dispatch dispatch,
+                     int capacity, OverflowSettings< ? > overflow ) {
+        if ( executor == null || dispatch == null ) throw new NullPointerException();
+        this.service = service;
+        this.executor = executor;
+        this.dispatch = dispatch;
+        this.queue = new EventQueue( this, capacity, overflow, new OverflowCounters() );
+    }
+
+    /**
+     * Queue an event for dispatching.
+     *
+     * @param event The event object to fire
+     * @return A future for the result of firing the event
+     */
+    CompletableFuture< Boolean > submit( Event event ) {
+        Pending< Event > pending = new Pending<Event>( event );
+        boolean queued;
+        try {
+            queued = queue.offer( pending, event );
+        } catch ( Throwable e ) {
+            // Neither queued nor discarded, eg. under FAIL, or if the overflow sink throws
+            try {
+                pending.result.completeExceptionally( e );
+            } finally {
+                release( event );
+            }
+            return pending.result;
+        }
+        if ( queued ) schedule();
+        return pending.result;
+    }
+
+    /**
+     * @return The overflow counters for the queue
+     */
+    OverflowCounters getOverflowCounters() {
+        return queue.getCounters();
+    }
+
+    public void awaitRoom( int attempt ) {
+        if ( DISPATCHING.get() == this ) {
+            throw new IllegalStateException( "Event queue is full while firing from the dispatching thread" );   // NON-NLS
+        }
+        schedule();
+        EventQueue.park( this, attempt );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public void discarded( Object element, OverflowPolicy policy ) {
+        Pending< Event > pending = (Pending< Event >) element;
+        if ( policy == OverflowPolicy.SPILL ) {
+            // The sink has taken over the event
+            pending.result.complete( false );
+        } else {
+            try {
+                pending.result.completeExceptionally( new EventQueueOverflow( pending.event, policy ));
+            } finally {
+                release( pending.event );
+            }
+        }
+    }
+
+    /**
+     * Dispatch queued events until the queue is empty, or until an event has been handed
+     * to the executor listener by listener.
+     */
+    @SuppressWarnings( "unchecked" )
+    public void run() {
+        AsyncDispatcher< ? > outer = DISPATCHING.get();
+        DISPATCHING.set( this );
+        try {
+            Pending< Event > pending;
+            while (( pending = (Pending< Event >) queue.poll() ) != null ) {
+                if ( dispatch == IAsyncEventService.Dispatch.EVENT ) {
+                    try {
+                        pending.result.complete( service.fire( pending.event ));
+                    } catch ( Throwable e ) {
+                        pending.result.completeExceptionally( e );
+                    }
+                } else if ( fanOut( pending )) {
+                    return;
+                }
+            }
+        } finally {
+            restore( outer );
+        }
+
+        scheduled.set( false );
+        if ( !queue.isEmpty() ) schedule();
+    }
+
+    private void schedule() {
+        if ( scheduled.compareAndSet( false, true )) {
+            resume();
+        }
+    }
+
+    /**
+     * Run the drain task on the executor.  Must only be called by the owner of {@link #scheduled}.
+     */
+    private void resume() {
+        try {
+            executor.execute( this );
+        } catch ( RejectedExecutionException e ) {
+            // The queued events were never dispatched, so nothing else holds them
+            Object polled;
+            while (( polled = queue.poll() ) != null ) {
+                Pending< ? > pending = (Pending< ? >) polled;
+                try {
+                    pending.result.completeExceptionally( e );
+                } finally {
+                    release( pending.event );
+                }
+            }
+            scheduled.set( false );
+        }
+    }
+
+    /**
+     * Start dispatching an event by handing each listener to the executor.
+     *
+     * @param pending The event to dispatch
+     * @return {@code true} if listeners have been started; draining will then resume once
+     *          they have all returned.  {@code false} if the event is already complete.
+     */
+    private boolean fanOut( final Pending< Event > pending ) {
+        final Event event = pending.event;
+        final ListenerEntry[] listeners;
+        final boolean preHandled;
+        try {
+            preHandled = service.preFire( event );
+            if ( AbstractEventService.isCanceled( event )) {
+                pending.result.complete( false );
+                release( event );
+                return false;
+            }
+
+            listeners = service.getDispatchList( event );
+            if ( listeners == null || listeners.length == 0 ) {
+                pending.result.complete( service.postFire( event, preHandled ));
+                release( event );
+                return false;
+            }
+        } catch ( Throwable e ) {
+            pending.result.completeExceptionally( e );
+            release( event );
+            return false;
+        }
+
+        @SuppressWarnings( { "unchecked", "rawtypes" } )
+        final CompletableFuture< Event >[] handled = new CompletableFuture[ listeners.length ];
+        try {
+            for ( int i = 0; i < listeners.length; i++ ) {
+                final ListenerEntry listener = listeners[ i ];
+                handled[ i ] = CompletableFuture.supplyAsync( () -> dispatchTo( listener, event ), executor );
+            }
+        } catch ( RejectedExecutionException e ) {
+            // Listeners which have already been started may still be using the event, so a
+            // recyclable event is left to the garbage collector rather than released
+            pending.result.completeExceptionally( e );
+            return false;
+        }
+
+        CompletableFuture.allOf( handled ).whenComplete( ( ignored, failure ) -> {
+            try {
+                if ( failure != null ) {
+                    pending.result.completeExceptionally( failure instanceof CompletionException ? failure.getCause() : failure );
+                } else {
+                    pending.result.complete( postFire( event, preHandled, handled ));
+                }
+            } catch ( Throwable e ) {
+                pending.result.completeExceptionally( e );
+            } finally {
+                release( event );
+                resume();
+            }
+        } );
+        return true;
+    }
+
+    /**
+     * Pass an event to one listener, on a thread of the executor, in
+     * {@link IAsyncEventService.Dispatch#LISTENER} mode.
+     */
+    private Event dispatchTo( ListenerEntry listener, Event event ) {
+        AsyncDispatcher< ? > outer = DISPATCHING.get();
+        DISPATCHING.set( this );
+        try {
+            return service.dispatchTo( listener, event );
+        } finally {
+            restore( outer );
+        }
+    }
+
+    private static void restore( AsyncDispatcher< ? > outer ) {
+        if ( outer == null ) DISPATCHING.remove();
+        else DISPATCHING.set( outer );
+    }
+
+    /**
+     * Release the service's reference to a recyclable event, once it has been dispatched.
+     */
+    private static void release( IEvent event ) {
+        if ( event instanceof AbstractRecyclableEvent ) ( (AbstractRecyclableEvent) event ).release();
+    }
+
+    private boolean postFire( Event event, boolean handled, CompletableFuture< Event >[] dispatched ) {
+        for ( CompletableFuture< Event > future : dispatched ) {
+            Event ev = future.join();
+            if ( ev != null ) {
+                if ( AbstractEventService.isCanceled( ev )) return false;
+                handled = true;
+            }
+        }
+        return service.postFire( event, handled );
+    }
+
+    private static final class Pending< Event extends IEvent > {
+        private final Event event;
+        private final CompletableFuture< Boolean > result = new CompletableFuture<Boolean>();
+
+        private Pending( Event event ) {
+            this.event = event;
+        }
+    }
+}
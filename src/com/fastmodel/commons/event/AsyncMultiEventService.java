@@ -0,0 +1,98 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link MultiEventService} which can also dispatch events asynchronously on an
+ * {@link Executor}, such as a thread pool or a virtual-thread-per-task executor.
+ *
+ * Events passed to {@link #fireAsync} are dispatched in the order in which they were
+ * fired, one event at a time.  Events passed to {@link #fire} are still dispatched
+ * synchronously on the calling thread, so they are not ordered with respect to
+ * asynchronously fired events.
+ *
+ * Asynchronously fired events are queued in an unbounded queue, unless the service is
+ * created with a capacity and {@link OverflowSettings} deciding what happens to events
+ * fired while the queue is full.
+ *
+ * @param <Event> The common root event type for this service
+ *
+ * @version 1.0
+ */
+public class AsyncMultiEventService< Event extends IEvent > extends MultiEventService< Event > implements IAsyncEventService< Event > {
+
+    private final AsyncDispatcher< Event > dispatcher;
+
+    /**
+     * Initialize the event service, dispatching each event as a whole.
+     *
+     * @param eventClass The root event type
+     * @param executor   The executor on which to dispatch events
+     */
+    public AsyncMultiEventService( Class< Event > eventClass, Executor executor ) {
+        this( eventClass, executor, Dispatch.EVENT );
+    }
+
+    /**
+     * Initialize the event service.
+     *
+     * @param eventClass The root event type
+     * @param executor   The executor on which to dispatch events
+     * @param dispatch   Whether to dispatch each event as a whole, or each listener separately
+     */
+    public AsyncMultiEventService( Class< Event > eventClass, Executor executor, Dispatch dispatch ) {
+        super( eventClass );
+        this.dispatcher = new AsyncDispatcher<Event>( this, executor, dispatch );
+    }
+
+    /**
+     * Initialize the event service with a bounded queue.
+     *
+     * @param eventClass The root event type
+     * @param executor   The executor on which to dispatch events
+     * @param dispatch   Whether to dispatch each event as a whole, or each listener separately
+     * @param capacity   The number of events which can be queued, which must be a power of two
+     * @param overflow   What to do with events fired while the queue is full
+     */
+    public AsyncMultiEventService( Class< Event > eventClass, Executor executor, Dispatch dispatch,
+                                   int capacity, OverflowSettings< ? super Event > overflow ) {
+        super( eventClass );
+        this.dispatcher = new AsyncDispatcher<Event>( this, executor, dispatch, capacity, overflow );
+    }
+
+    /**
+     * Queue an event to be fired to all registered listeners.
+     *
+     * @param event The event object to fire
+     *
+     * @return A future which completes with {@code true} if the event is handled and not
+     *          canceled, or completes exceptionally if a listener throws an exception,
+     *          or if the event overflowed a bounded queue and wasn't queued.
+     */
+    public CompletableFuture< Boolean > fireAsync( Event event ) {
+        return dispatcher.submit( event );
+    }
+
+    /**
+     * @return The overflow counters for the queue of asynchronously fired events
+     */
+    public OverflowCounters getOverflowCounters() {
+        return dispatcher.getOverflowCounters();
+    }
+}
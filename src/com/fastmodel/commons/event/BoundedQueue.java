@@ -0,0 +1,128 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for any number of producers and consumers.
+ *
+ * Each slot carries a sequence number recording whether it is free for the producer of
+ * a given position ({@code 2 * position}), or holds the element for the consumer of that
+ * position ({@code 2 * position + 1}).  The sequence numbers are doubled so that a full
+ * slot can't be mistaken for a free one, even with a capacity of 1.  Producers
+ * claim a position with a CAS on the tail sequence, and publish the element by advancing
+ * the slot's sequence; consumers claim a position with a CAS on the head sequence, and
+ * free the slot by advancing its sequence again.  Services normally have a single
+ * consumer, but a producer may also remove the oldest element to make room for its own.
+ *
+ * @param <E> The element type
+ *
+ * @version 1.0
+ */
+final class BoundedQueue< E > {
+
+    private final AtomicReferenceArray< E > elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final Sequence tail = new Sequence( 0 );
+    private final Sequence head = new Sequence( 0 );
+
+    /**
+     * @param capacity The number of elements the queue can hold, which must be a power of two
+     */
+    BoundedQueue( int capacity ) {
+        if ( capacity < 1 || Integer.bitCount( capacity ) != 1 ) {
+            throw new IllegalArgumentException( "Capacity must be a power of two: " + capacity );   // NON-NLS
+        }
+        this.elements = new AtomicReferenceArray<E>( capacity );
+        this.sequences = new AtomicLongArray( capacity );
+        this.mask = capacity - 1;
+        for ( int i = 0; i < capacity; i++ ) {
+            sequences.set( i, 2L * i );
+        }
+    }
+
+    /**
+     * Add an element at the tail of the queue, if there is room.  May be called by any thread.
+     *
+     * @param element The element
+     * @return {@code true} if the element was added, {@code false} if the queue is full
+     */
+    boolean offer( E element ) {
+        if ( element == null ) throw new NullPointerException();
+
+        while ( true ) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long available = sequences.get( index ) - 2 * position;
+            if ( available == 0 ) {
+                if ( tail.compareAndSet( position, position + 1 )) {
+                    elements.lazySet( index, element );
+                    sequences.lazySet( index, 2 * position + 1 );
+                    return true;
+                }
+            } else if ( available < 0 ) {
+                return false;
+            }
+            // Otherwise another producer claimed the position first
+        }
+    }
+
+    /**
+     * Remove the element at the head of the queue.  May be called by any thread.
+     *
+     * @return The element, or {@code null} if the queue is empty, or the element at the
+     *          head hasn't been published yet
+     */
+    E poll() {
+        while ( true ) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long available = sequences.get( index ) - ( 2 * position + 1 );
+            if ( available == 0 ) {
+                if ( head.compareAndSet( position, position + 1 )) {
+                    E element = elements.get( index );
+                    elements.lazySet( index, null );
+                    sequences.lazySet( index, 2 * ( position + mask + 1 ));
+                    return element;
+                }
+            } else if ( available < 0 ) {
+                return null;
+            }
+            // Otherwise another consumer removed the element first
+        }
+    }
+
+    /**
+     * @return The number of elements in the queue.  This is only a snapshot while other
+     *          threads are adding or removing elements.
+     */
+    int size() {
+        long size = tail.get() - head.get();
+        return size < 0 ? 0 : (int) Math.min( size, mask + 1 );
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
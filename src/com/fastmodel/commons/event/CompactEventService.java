@@ -0,0 +1,489 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * An event service for models with very many small services, each with few listeners,
+ * which takes as little memory as possible.  Like {@link SimpleEventService}, it
+ * dispatches a single root event type.
+ *
+ * The service holds up to two listeners inline, in its own fields, and only moves them
+ * to an array, of exactly the size needed, once a third is bound, or once listeners
+ * can't be kept in order inline.  A listener bound with {@link #bind(IListener)} is held
+ * directly, without a wrapper; only listeners bound with a priority, weakly, or through
+ * {@link #bindAll} are wrapped.  The service is its own socket and binder, so
+ * {@link #getSocket()} and {@link #getBinder()} allocate nothing.  An empty service
+ * takes 24 bytes with compressed references, or 32 without.
+ *
+ * The service is thread-safe.  Binding and unbinding lock the service; firing never
+ * locks, and reads the listeners as they were at some moment during the read.  A
+ * listener unbound during a fire is skipped from then on.  Weakly bound listeners are
+ * unbound once collected, the next time any compact service binds or unbinds a listener.
+ *
+ * The service doesn't support batches, metrics, clone recycling, filtered sockets or
+ * nested dispatch settings; use {@link SimpleEventService} for those.
+ *
+ * @param <Event> The root event type for this service
+ *
+ * @version 1.0
+ */
+public class CompactEventService< Event extends IEvent > implements IEventService< Event >, IEventSocket< Event >, IEventBinder {
+
+    /** The queue on which the weakly bound listeners of all compact services are reclaimed */
+    private static final ReclaimQueue RECLAIMED = new ReclaimQueue();
+
+    private final Class< Event > eventClass;
+    /**
+     * The first inline listener, or an array holding all of the listeners.  Either an
+     * {@link IListener} or a {@link ListenerEntry}.
+     */
+    private volatile Object first;
+    /** The second inline listener; ignored while {@link #first} is an array */
+    private volatile Object second;
+
+    /**
+     * @param eventClass The root event type, against which annotated listener methods are checked
+     */
+    public CompactEventService( Class< Event > eventClass ) {
+        if ( eventClass == null ) throw new NullPointerException();
+        this.eventClass = eventClass;
+    }
+
+    /**
+     * Fire an event to all registered listeners.
+     *
+     * @param event The event object to fire
+     * @return {@code true} if the event is handled and not canceled
+     */
+    public boolean fire( Event event ) {
+        if ( event instanceof AbstractRecyclableEvent ) {
+            AbstractRecyclableEvent recyclable = (AbstractRecyclableEvent) event;
+            recyclable.checkLive();
+            try {
+                return dispatch( event );
+            } finally {
+                recyclable.release();
+            }
+        }
+        return dispatch( event );
+    }
+
+    private boolean dispatch( Event event ) {
+        boolean handled = preFire( event );
+        if ( AbstractEventService.isCanceled( event )) return false;
+
+        // Read both inline listeners from the same moment: retry if the first changes meanwhile
+        Object a, b;
+        do {
+            a = first;
+            if ( a instanceof Object[] ) {
+                b = null;
+                break;
+            }
+            b = second;
+        } while ( a != first );
+
+        if ( a instanceof Object[] ) {
+            for ( Object listener : (Object[]) a ) {
+                int result = invoke( listener, event, a, null );
+                if ( result < 0 ) return false;
+                if ( result > 0 ) handled = true;
+            }
+        } else {
+            int result = a == null ? 0 : invoke( a, event, a, b );
+            if ( result < 0 ) return false;
+            if ( result > 0 ) handled = true;
+
+            result = b == null ? 0 : invoke( b, event, a, b );
+            if ( result < 0 ) return false;
+            if ( result > 0 ) handled = true;
+        }
+
+        return postFire( event, handled );
+    }
+
+    /**
+     * Pass a prepared event object to one listener, unless it has been unbound since the
+     * listeners were read.
+     *
+     * @param a The first listener, or listener array, as read by the fire
+     * @param b The second listener, as read by the fire
+     * @return {@code 1} if the listener was invoked, {@code 0} if it wasn't, or {@code -1}
+     *          if it cancelled the event
+     */
+    @SuppressWarnings( "unchecked" )
+    private int invoke( Object listener, Event event, Object a, Object b ) {
+        if ( listener instanceof ListenerEntry ) {
+            ListenerEntry entry = (ListenerEntry) listener;
+            if ( entry.isUnbound() || entry.getTarget() == null ) return 0;
+            if ( entry instanceof MethodEntry && !( (MethodEntry) entry ).accepts( event )) return 0;
+        } else if (( first != a || second != b ) && !isBound( listener )) {
+            return 0;
+        }
+
+        Event ev = prepEvent( event );
+        if ( ev == null ) return 0;
+
+        if ( listener instanceof ListenerEntry ) {
+            ( (ListenerEntry) listener ).invoke( ev );
+        } else {
+            ( (IListener< Event >) listener ).handle( ev );
+        }
+        return AbstractEventService.isCanceled( ev ) ? -1 : 1;
+    }
+
+    /**
+     * Fire a batch of events, one at a time.
+     *
+     * @param events The event objects to fire, in order
+     * @return The result of firing each event
+     */
+    public BitSet fireAll( Collection< ? extends Event > events ) {
+        BitSet results = new BitSet( events.size() );
+        int i = 0;
+        for ( Event event : events ) {
+            results.set( i++, fire( event ));
+        }
+        return results;
+    }
+
+    /**
+     * Fire a batch of events, one at a time.
+     *
+     * @param events The event objects to fire, in order
+     * @return The result of firing each event
+     */
+    public BitSet fireAll( Event[] events ) {
+        return fireAll( Arrays.asList( events ));
+    }
+
+    /**
+     * @return This service, which is its own socket
+     */
+    public final IEventSocket< Event > getSocket() {
+        return this;
+    }
+
+    /**
+     * @return This service, which is its own binder
+     */
+    public final IEventBinder getBinder() {
+        return this;
+    }
+
+    public IListener< Event > bind( IListener< Event > listener ) {
+        if ( listener == null ) throw new NullPointerException();
+        add( listener, 0 );
+        return listener;
+    }
+
+    public IListener< Event > bind( IListener< Event > listener, int priority ) {
+        if ( priority == 0 ) return bind( listener );
+        add( new ListenerEntry( listener, listener instanceof IReadOnlyListener, priority, null ), priority );
+        return listener;
+    }
+
+    public IListener< Event > bindWeak( IListener< Event > listener ) {
+        add( new WeakEntry( listener, this ), 0 );
+        return listener;
+    }
+
+    /**
+     * Remove a previously registered listener.  The listener is found by identity.
+     *
+     * @param listener The listener to remove
+     * @return {@code true} if the specified listener was actually removed.
+     */
+    public boolean unbind( IListener< Event > listener ) {
+        if ( listener == null ) return false;
+
+        RECLAIMED.reclaim();
+        synchronized ( this ) {
+            return removeAll( listener, false );
+        }
+    }
+
+    /**
+     * Add all methods annotated with {@link Listener} as listeners in this service.
+     * Filtered methods are filtered by testing each event, rather than through an index.
+     *
+     * @param object        The object for which to register listeners
+     * @param <ObjectType>  The type of the object
+     * @return The registered object, for chaining etc.
+     *
+     * @throws ListenerTypeMismatch if a listener method cannot be bound to this service
+     */
+    public < ObjectType > ObjectType bindAll( ObjectType object ) {
+        for ( ListenerMethod method : ListenerMethod.bindable( object.getClass(), eventClass )) {
+            add( new MethodEntry( method, object ), method.getPriority() );
+        }
+        return object;
+    }
+
+    public boolean unbindAll( Object object ) {
+        RECLAIMED.reclaim();
+        synchronized ( this ) {
+            return removeAll( object, true );
+        }
+    }
+
+    /**
+     * <p>Invoked prior to invoking any listeners.  Listeners will not be invoked if the
+     * event is cancelled by this method.
+     *
+     * @param event The original event object
+     * @return {@code true} if any handlers were invoked and the event was not cancelled.
+     *
+     * @see AbstractEventService#preFire
+     */
+    protected boolean preFire( Event event ) {
+        return false;
+    }
+
+    /**
+     * <p>Invoked after all listeners for this event have been invoked, unless the event
+     * was cancelled.
+     *
+     * @param event   The original event object
+     * @param handled {@code true} if at least one listener has been invoked already.
+     * @return {@code true} if at least one handler has been invoked and the event
+     *                      was not cancelled.
+     *
+     * @see AbstractEventService#postFire
+     */
+    protected boolean postFire( Event event, boolean handled ) {
+        return handled;
+    }
+
+    /**
+     * Prepare the event object to be passed to a listener: if the event object implements
+     * {@link IClonableEvent}, the event is cloned.
+     *
+     * @param event The fired event object
+     * @return The instance of the event object to pass to the listener, or {@code null} if
+     *          cloning failed, to suppress handler invocation
+     *
+     * @see AbstractEventService#prepEvent
+     */
+    @SuppressWarnings( "unchecked" )
+    protected Event prepEvent( Event event ) {
+        if ( !( event instanceof IClonableEvent )) return event;
+        try {
+            return (Event) ( (IClonableEvent) event ).clone();
+        } catch ( CloneNotSupportedException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Insert a listener after any listeners with the same or a higher priority.  While
+     * the listeners are inline, each change is a single write, so that a concurrent fire
+     * never sees a listener twice or misses one which stays bound.
+     */
+    private void add( Object listener, int priority ) {
+        RECLAIMED.reclaim();
+        synchronized ( this ) {
+            Object a = first;
+            if ( !( a instanceof Object[] )) {
+                Object b = second;
+                if ( a == null && b == null ) {
+                    first = listener;
+                    return;
+                }
+                if ( b == null && priorityOf( a ) >= priority ) {
+                    second = listener;
+                    return;
+                }
+                if ( a == null && priority > priorityOf( b )) {
+                    first = listener;
+                    return;
+                }
+            }
+
+            Object[] current = listeners();
+            int index = 0;
+            while ( index < current.length && priorityOf( current[ index ] ) >= priority ) index++;
+            Object[] updated = new Object[ current.length + 1 ];
+            System.arraycopy( current, 0, updated, 0, index );
+            updated[ index ] = listener;
+            System.arraycopy( current, index, updated, index + 1, current.length - index );
+            first = updated;
+            second = null;
+        }
+    }
+
+    /**
+     * Remove the listeners bound for a target.  Must hold the lock.
+     *
+     * @param target  A listener, or an object bound through {@link #bindAll}
+     * @param methods {@code true} to remove all of the object's listener methods, {@code false}
+     *                to remove the first listener bound as the target
+     */
+    private boolean removeAll( Object target, boolean methods ) {
+        boolean removed = false;
+        Object a = first;
+        if ( a instanceof Object[] ) {
+            for ( Object bound : (Object[]) a ) {
+                if ( isBoundAs( bound, target, methods ) && remove( bound )) {
+                    if ( !methods ) return true;
+                    removed = true;
+                }
+            }
+            return removed;
+        }
+
+        Object b = second;
+        if ( a != null && isBoundAs( a, target, methods ) && remove( a )) {
+            if ( !methods ) return true;
+            removed = true;
+        }
+        if ( b != null && isBoundAs( b, target, methods ) && remove( b )) {
+            removed = true;
+        }
+        return removed;
+    }
+
+    private static boolean isBoundAs( Object bound, Object target, boolean methods ) {
+        if ( bound instanceof MethodEntry ) return methods && ( (MethodEntry) bound ).getTarget() == target;
+        if ( methods ) return false;
+        return bound == target || ( bound instanceof ListenerEntry && ( (ListenerEntry) bound ).getTarget() == target );
+    }
+
+    /**
+     * Unbind and remove a bound listener.  Must hold the lock.
+     */
+    private boolean remove( Object listener ) {
+        if ( listener instanceof ListenerEntry && !( (ListenerEntry) listener ).unbind() ) return false;
+        return detach( listener );
+    }
+
+    /**
+     * Remove a listener which has already been unbound.  Must hold the lock.  Once the
+     * listeners are held in an array, they stay in one until none are left, so that a fire
+     * never sees the same listener inline and in an array.
+     */
+    private boolean detach( Object listener ) {
+        Object a = first;
+        if ( a instanceof Object[] ) {
+            Object[] current = (Object[]) a;
+            int index = 0;
+            while ( index < current.length && current[ index ] != listener ) index++;
+            if ( index == current.length ) return false;
+
+            if ( current.length == 1 ) {
+                first = null;
+            } else {
+                Object[] updated = new Object[ current.length - 1 ];
+                System.arraycopy( current, 0, updated, 0, index );
+                System.arraycopy( current, index + 1, updated, index, updated.length - index );
+                first = updated;
+            }
+        } else if ( a == listener ) {
+            first = null;
+        } else if ( second == listener ) {
+            second = null;
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The bound listeners, in dispatch order.  Must hold the lock.
+     */
+    private Object[] listeners() {
+        Object a = first;
+        if ( a instanceof Object[] ) return (Object[]) a;
+
+        Object b = second;
+        if ( a == null ) return b == null ? new Object[ 0 ] : new Object[] { b };
+        return b == null ? new Object[] { a } : new Object[] { a, b };
+    }
+
+    /**
+     * @return {@code true} if a listener read by a fire is still bound
+     */
+    private boolean isBound( Object listener ) {
+        Object a = first;
+        if ( a instanceof Object[] ) {
+            for ( Object bound : (Object[]) a ) {
+                if ( bound == listener ) return true;
+            }
+            return false;
+        }
+        return a == listener || second == listener;
+    }
+
+    private static int priorityOf( Object listener ) {
+        return listener instanceof ListenerEntry ? ( (ListenerEntry) listener ).getPriority() : 0;
+    }
+
+    /**
+     * A weakly bound listener, which removes itself from its service once collected
+     */
+    private static final class WeakEntry extends ListenerEntry {
+        private final CompactEventService< ? > service;
+
+        private WeakEntry( IListener< ? > listener, CompactEventService< ? > service ) {
+            super( listener, listener instanceof IReadOnlyListener, 0, RECLAIMED );
+            this.service = service;
+        }
+
+        @Override
+        void reclaimed() {
+            synchronized ( service ) {
+                service.detach( this );
+            }
+        }
+    }
+
+    /**
+     * A listener method bound through {@link #bindAll}
+     */
+    private static final class MethodEntry extends ListenerEntry {
+        private final ListenerMethod method;
+
+        private MethodEntry( ListenerMethod method, Object target ) {
+            super( target, method.isReadOnly(), method.getPriority(), null );
+            this.method = method;
+        }
+
+        /**
+         * @return {@code true} if the event is of the method's event type, and matches its filter
+         */
+        boolean accepts( IEvent event ) {
+            if ( !method.getEventType().isInstance( event )) return false;
+
+            EventFilter< ? > filter = method.getFilter();
+            return filter == null || ( filter.getEventClass().isInstance( event ) && filter.matches( filter.getAttribute().read( event )));
+        }
+
+        @Override
+        void invoke( IEvent event ) {
+            Object target = getTarget();
+            if ( target != null ) method.invoke( target, event );
+        }
+
+        @Override
+        IListener< ? > getListener() {
+            return null;
+        }
+    }
+}
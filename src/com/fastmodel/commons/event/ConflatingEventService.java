@@ -0,0 +1,210 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link MultiEventService} which conflates events: events published to it are held
+ * until the next drain cycle, and a pending {@link IConflatedEvent} is replaced by any
+ * newer event with an equal conflation key, so that listeners only see the latest event
+ * for each key.  This suits bursts of events where only the newest value matters, such as
+ * prices or progress updates.
+ *
+ * Events are published with {@link #publish}, and dispatched to the bound listeners by
+ * {@link #drain()}, which may be called periodically with {@link #scheduleDrain}.
+ * Alternatively, a consumer can pull the pending events itself with {@link #poll()}.
+ * Pending events are dispatched in the order in which their keys became pending.
+ *
+ * Each key has a slot holding its pending event, which is created the first time the
+ * key is published and kept from then on, so keys should come from a bounded set.
+ * Replacing a pending event is a single atomic swap, and allocates nothing; queueing a
+ * key which wasn't pending allocates a queue node.  Events which aren't
+ * {@link IConflatedEvent}s, or have no key, are never conflated.
+ *
+ * Events passed to {@link #fire} are still dispatched synchronously on the calling
+ * thread, without conflation.
+ *
+ * @param <Event> The common root event type for this service
+ *
+ * @version 1.0
+ */
+public class ConflatingEventService< Event extends IEvent > extends MultiEventService< Event > {
+
+    private final ConcurrentMap< Object, Slot< Event >> slots = new ConcurrentHashMap<Object, Slot<Event>>();
+    private final Queue< Slot< Event >> pending = new ConcurrentLinkedQueue<Slot<Event>>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder conflated = new LongAdder();
+    /** Serializes draining and polling, so that events for one key are never dispatched concurrently */
+    private final Object drainLock = new Object();
+
+    /**
+     * @param eventClass The root event type
+     */
+    public ConflatingEventService( Class< Event > eventClass ) {
+        super( eventClass );
+    }
+
+    /**
+     * Hold an event until the next drain cycle, replacing any pending event with an
+     * equal conflation key.  A replaced {@link AbstractRecyclableEvent} is released.
+     *
+     * @param event The event object
+     */
+    public void publish( Event event ) {
+        if ( event == null ) throw new NullPointerException();
+
+        Object key = event instanceof IConflatedEvent ? ( (IConflatedEvent) event ).getConflationKey() : null;
+        Slot< Event > slot;
+        if ( key == null ) {
+            slot = new Slot<Event>();
+        } else {
+            slot = slots.get( key );
+            if ( slot == null ) slot = slots.computeIfAbsent( key, k -> new Slot<Event>() );
+        }
+
+        Event replaced = slot.swap( event );
+        if ( replaced == null ) {
+            pendingCount.incrementAndGet();
+            pending.add( slot );
+        } else {
+            conflated.increment();
+            release( replaced );
+        }
+    }
+
+    /**
+     * Dispatch the events which are pending when the call is made to the bound listeners.
+     * Events published meanwhile replace pending events as usual, and are otherwise left
+     * for the next cycle.
+     *
+     * @return The number of events dispatched
+     */
+    public int drain() {
+        synchronized ( drainLock ) {
+            int dispatched = 0;
+            for ( int remaining = pendingCount.get(); remaining > 0; remaining-- ) {
+                Event event = take();
+                if ( event == null ) break;
+
+                try {
+                    fire( event );
+                } catch ( RuntimeException e ) {
+                    dispatchFailed( event, e );
+                }
+                dispatched++;
+            }
+            return dispatched;
+        }
+    }
+
+    /**
+     * Take the next pending event, without dispatching it to the bound listeners.
+     * The caller takes over the service's reference to an {@link AbstractRecyclableEvent}.
+     *
+     * @return The latest event for the key which has been pending longest, or {@code null}
+     *          if no events are pending
+     */
+    public Event poll() {
+        synchronized ( drainLock ) {
+            return take();
+        }
+    }
+
+    /**
+     * Drain the service periodically.
+     *
+     * @param executor The executor on which to drain
+     * @param period   The time between drain cycles
+     * @param unit     The unit of the period
+     * @return The future for the drain task, which can be used to cancel it
+     */
+    public ScheduledFuture< ? > scheduleDrain( ScheduledExecutorService executor, long period, TimeUnit unit ) {
+        return executor.scheduleAtFixedRate( this::drain, period, period, unit );
+    }
+
+    /**
+     * @return The number of keys with a pending event
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return The number of pending events which have been replaced by newer events, and
+     *          so were never dispatched
+     */
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    /**
+     * Invoked when a listener throws an exception while the service is draining.  The
+     * service continues with the next event.  By default, the exception is passed to the
+     * current thread's uncaught exception handler.
+     *
+     * @param event The event being dispatched
+     * @param e     The exception
+     */
+    protected void dispatchFailed( Event event, RuntimeException e ) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException( thread, e );
+    }
+
+    /**
+     * Take the event from the next pending slot.  Must hold {@link #drainLock}.
+     */
+    private Event take() {
+        Slot< Event > slot = pending.poll();
+        if ( slot == null ) return null;
+
+        pendingCount.decrementAndGet();
+        return slot.swap( null );
+    }
+
+    private static void release( IEvent event ) {
+        if ( event instanceof AbstractRecyclableEvent ) ( (AbstractRecyclableEvent) event ).release();
+    }
+
+    /**
+     * The pending event for one key.  A slot is queued whenever it changes from empty to
+     * holding an event, and emptied when it is taken from the queue.
+     */
+    private static final class Slot< Event extends IEvent > {
+        @SuppressWarnings( "rawtypes" )
+        private static final AtomicReferenceFieldUpdater< Slot, IEvent > EVENT =
+                AtomicReferenceFieldUpdater.newUpdater( Slot.class, IEvent.class, "event" );
+
+        private volatile IEvent event;
+
+        /**
+         * @return The event the slot held before
+         */
+        @SuppressWarnings( "unchecked" )
+        private Event swap( Event replacement ) {
+            return (Event) EVENT.getAndSet( this, replacement );
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * An event service which fires {@code double} values, such as counter deltas, timestamps or
+ * ids, to {@link IDoubleListener}s, without wrapping them in event objects.  Firing a value
+ * allocates nothing.
+ *
+ * The service is thread-safe, and firing never locks.
+ *
+ * @version 1.0
+ */
+public class DoubleEventService extends AbstractPrimitiveEventService< IDoubleListener > {
+
+    /**
+     * Fire a value to all registered listeners.
+     *
+     * @param value The value to fire
+     * @return {@code true} if the value is handled and not canceled
+     */
+    public boolean fire( double value ) {
+        boolean handled = false;
+        for ( ListenerEntry entry : getDispatchList() ) {
+            if ( entry.isUnbound() ) continue;
+
+            IDoubleListener listener = (IDoubleListener) entry.getTarget();
+            if ( listener == null ) continue;
+
+            if ( !listener.handle( value )) return false;
+            handled = true;
+        }
+        return handled;
+    }
+}
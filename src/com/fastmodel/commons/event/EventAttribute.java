@@ -0,0 +1,177 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * An attribute of an event type, on which listeners can be filtered.  Event services
+ * group the filters which share an attribute, and index them, so that firing an event
+ * reads the attribute once and only invokes the filtered listeners whose filter matches.
+ *
+ * Filters are grouped by the identity of their attribute, so an attribute should be
+ * declared once, as a constant, and shared by all filters on it:
+ *
+ * <pre>
+ *     static final EventAttribute&lt; LogEvent, Integer &gt; SEVERITY =
+ *             EventAttribute.of( LogEvent.class, LogEvent::getSeverity );
+ *
+ *     service.getSocket( SEVERITY.atLeast( WARN )).bind( listener );
+ * </pre>
+ *
+ * Attribute values are compared with {@link Object#equals(Object)} by equality and
+ * membership filters, and by their natural ordering by range filters.  A {@code null}
+ * value matches no filter.
+ *
+ * @param <Event> The event type declaring the attribute
+ * @param <Value> The type of the attribute's values
+ *
+ * @version 1.0
+ */
+public final class EventAttribute< Event extends IEvent, Value > {
+
+    private final Class< Event > eventClass;
+    private final Function< ? super Event, ? extends Value > accessor;
+
+    private EventAttribute( Class<Event> eventClass, Function< ? super Event, ? extends Value > accessor ) {
+        if ( eventClass == null || accessor == null ) throw new NullPointerException();
+        this.eventClass = eventClass;
+        this.accessor = accessor;
+    }
+
+    /**
+     * Declare an event attribute.
+     *
+     * @param eventClass The event type declaring the attribute
+     * @param accessor   Reads the attribute from an event object.  It is invoked at most
+     *                   once per fired event, and must not modify the event.
+     * @param <Event>    The event type declaring the attribute
+     * @param <Value>    The type of the attribute's values
+     * @return The attribute
+     */
+    public static < Event extends IEvent, Value > EventAttribute< Event, Value > of( Class<Event> eventClass,
+                                                                                     Function< ? super Event, ? extends Value > accessor ) {
+        return new EventAttribute<Event, Value>( eventClass, accessor );
+    }
+
+    /**
+     * @param value The value to match
+     * @return A filter matching events whose attribute equals the value
+     */
+    public EventFilter< Event > equalTo( Value value ) {
+        return new EventFilter<Event>( this, new Object[] { checkValue( value ) } );
+    }
+
+    /**
+     * @param values The values to match
+     * @return A filter matching events whose attribute equals any of the values
+     */
+    @SafeVarargs
+    @SuppressWarnings( "varargs" )
+    public final EventFilter< Event > in( Value... values ) {
+        return in( Arrays.asList( values ));
+    }
+
+    /**
+     * @param values The values to match
+     * @return A filter matching events whose attribute equals any of the values
+     */
+    public EventFilter< Event > in( Collection< ? extends Value > values ) {
+        Object[] matched = values.toArray();
+        if ( matched.length == 0 ) throw new IllegalArgumentException( "No values to match" );   // NON-NLS
+        for ( Object value : matched ) checkValue( value );
+        return new EventFilter<Event>( this, matched );
+    }
+
+    /**
+     * @param bound The lowest value to match
+     * @return A filter matching events whose attribute is greater than or equal to the bound
+     */
+    public EventFilter< Event > atLeast( Value bound ) {
+        return new EventFilter<Event>( this, checkBound( bound ), true, null, false );
+    }
+
+    /**
+     * @param bound The bound, which is not matched itself
+     * @return A filter matching events whose attribute is greater than the bound
+     */
+    public EventFilter< Event > greaterThan( Value bound ) {
+        return new EventFilter<Event>( this, checkBound( bound ), false, null, false );
+    }
+
+    /**
+     * @param bound The highest value to match
+     * @return A filter matching events whose attribute is less than or equal to the bound
+     */
+    public EventFilter< Event > atMost( Value bound ) {
+        return new EventFilter<Event>( this, null, false, checkBound( bound ), true );
+    }
+
+    /**
+     * @param bound The bound, which is not matched itself
+     * @return A filter matching events whose attribute is less than the bound
+     */
+    public EventFilter< Event > lessThan( Value bound ) {
+        return new EventFilter<Event>( this, null, false, checkBound( bound ), false );
+    }
+
+    /**
+     * @param lower The lowest value to match
+     * @param upper The highest value to match
+     * @return A filter matching events whose attribute lies between the bounds, inclusive
+     */
+    public EventFilter< Event > between( Value lower, Value upper ) {
+        Comparable< Object > low = checkBound( lower ), high = checkBound( upper );
+        if ( low.compareTo( high ) > 0 ) {
+            throw new IllegalArgumentException( String.format( "Empty range: %s to %s", lower, upper ));   // NON-NLS
+        }
+        return new EventFilter<Event>( this, low, true, high, true );
+    }
+
+    /**
+     * @return The event type declaring the attribute
+     */
+    public Class< Event > getEventClass() {
+        return eventClass;
+    }
+
+    /**
+     * Read the attribute from an event object, which must be an instance of the
+     * attribute's event class.
+     *
+     * @param event The event object
+     * @return The attribute's value
+     */
+    @SuppressWarnings( "unchecked" )
+    Object read( IEvent event ) {
+        return accessor.apply( (Event) event );
+    }
+
+    private static Object checkValue( Object value ) {
+        if ( value == null ) throw new NullPointerException();
+        return value;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Comparable< Object > checkBound( Object bound ) {
+        if ( !( checkValue( bound ) instanceof Comparable )) {
+            throw new IllegalArgumentException( "Range bounds must be Comparable: " + bound );   // NON-NLS
+        }
+        return (Comparable< Object >) bound;
+    }
+}
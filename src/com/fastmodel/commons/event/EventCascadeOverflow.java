@@ -0,0 +1,51 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * Thrown when a cascade of events fired by listeners exceeds an event service's
+ * {@link AbstractEventService#setCascadeLimit cascade limit}, which usually means that
+ * listeners are firing events at each other without end.
+ *
+ * @version 1.0
+ */
+public class EventCascadeOverflow extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient IEvent event;
+
+    private final int limit;
+
+    public EventCascadeOverflow( IEvent event, int limit ) {
+        super( String.format( "Cascade of events exceeded %d events at %s", limit, event.getClass().getName() ));   // NON-NLS
+        this.event = event;
+        this.limit = limit;
+    }
+
+    /**
+     * @return The event which exceeded the limit
+     */
+    public IEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * @return The cascade limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
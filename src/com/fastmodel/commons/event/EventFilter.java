@@ -0,0 +1,156 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A declarative filter on an {@link EventAttribute}: equality, set membership, or a range.
+ * Filters are created by the attribute's methods, and passed to an event service's
+ * {@code getSocket} to bind filtered listeners, or named by {@link Listener#filter()}.
+ * A filtered listener is only invoked for events which are instances of the attribute's
+ * event class, and whose attribute matches the filter.
+ *
+ * Filters are equal if they are on the same attribute, and match the same set of values
+ * (in any order) or the same range, so that a listener can be unbound from a socket for
+ * an equal filter.
+ *
+ * @param <Event> The event type declaring the filtered attribute
+ *
+ * @version 1.0
+ */
+public final class EventFilter< Event extends IEvent > {
+
+    private final EventAttribute< Event, ? > attribute;
+    /** The distinct values matched by an equality or membership filter, or {@code null} for a range */
+    private final Object[] values;
+    /** The same values as a set, which is compared regardless of their order */
+    private final Set< Object > valueSet;
+    /** The bounds of a range filter; {@code null} if unbounded */
+    private final Comparable< Object > lower, upper;
+    private final boolean lowerInclusive, upperInclusive;
+
+    EventFilter( EventAttribute< Event, ? > attribute, Object[] values ) {
+        this.attribute = attribute;
+        if ( values.length == 1 ) {
+            this.valueSet = Collections.singleton( values[ 0 ] );
+            this.values = values;
+        } else {
+            this.valueSet = Collections.unmodifiableSet( new LinkedHashSet<Object>( Arrays.asList( values )));
+            this.values = valueSet.toArray();
+        }
+        this.lower = this.upper = null;
+        this.lowerInclusive = this.upperInclusive = false;
+    }
+
+    EventFilter( EventAttribute< Event, ? > attribute, Comparable< Object > lower, boolean lowerInclusive,
+                 Comparable< Object > upper, boolean upperInclusive ) {
+        this.attribute = attribute;
+        this.values = null;
+        this.valueSet = null;
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+    }
+
+    /**
+     * Evaluate the filter against an event object directly, rather than through an index.
+     *
+     * @param event The event object
+     * @return {@code true} if the event's attribute matches the filter
+     */
+    public boolean test( Event event ) {
+        return matches( attribute.read( event ));
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+        if ( this == o ) return true;
+        if ( !( o instanceof EventFilter )) return false;
+
+        EventFilter< ? > that = (EventFilter< ? >) o;
+        return attribute == that.attribute && Objects.equals( valueSet, that.valueSet )
+                && Objects.equals( lower, that.lower ) && lowerInclusive == that.lowerInclusive
+                && Objects.equals( upper, that.upper ) && upperInclusive == that.upperInclusive;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash( System.identityHashCode( attribute ), valueSet, lower, lowerInclusive, upper, upperInclusive );
+    }
+
+    /**
+     * @return The event type declaring the filtered attribute
+     */
+    public Class< Event > getEventClass() {
+        return attribute.getEventClass();
+    }
+
+    EventAttribute< Event, ? > getAttribute() {
+        return attribute;
+    }
+
+    boolean isRange() {
+        return values == null;
+    }
+
+    /**
+     * @return The values matched by an equality or membership filter
+     */
+    Object[] getValues() {
+        return values;
+    }
+
+    Comparable< Object > getLower() {
+        return lower;
+    }
+
+    Comparable< Object > getUpper() {
+        return upper;
+    }
+
+    boolean isLowerInclusive() {
+        return lowerInclusive;
+    }
+
+    boolean isUpperInclusive() {
+        return upperInclusive;
+    }
+
+    /**
+     * @param value An attribute value
+     * @return {@code true} if the value matches the filter
+     */
+    boolean matches( Object value ) {
+        if ( value == null ) return false;
+        if ( valueSet != null ) return valueSet.contains( value );
+
+        if ( lower != null ) {
+            int compared = lower.compareTo( value );
+            if ( compared > 0 || ( compared == 0 && !lowerInclusive )) return false;
+        }
+        if ( upper != null ) {
+            int compared = upper.compareTo( value );
+            if ( compared < 0 || ( compared == 0 && !upperInclusive )) return false;
+        }
+        return true;
+    }
+}
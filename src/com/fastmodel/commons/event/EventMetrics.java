@@ -0,0 +1,238 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatch metrics for an event service, enabled with
+ * {@link AbstractEventService#setMetrics(EventMetrics)}.  Metrics are recorded per fired
+ * event class, and per listener.  All counters are {@link LongAdder}s, so recording
+ * scales across dispatching threads, and the metrics can be read at any time without
+ * stopping dispatch; a reading taken while events are being fired is not an atomic
+ * snapshot.
+ *
+ * Listener latencies are only recorded by {@link IEventService#fire}; batches fired with
+ * {@link IEventService#fireAll} only record the event counts.
+ *
+ * @version 1.0
+ */
+public final class EventMetrics {
+
+    /**
+     * Notified when a listener takes longer than the slow listener threshold.
+     */
+    public interface SlowListenerCallback {
+        /**
+         * Called on the dispatching thread, after the listener has returned.
+         *
+         * @param metrics The metrics of the listener
+         * @param event   The event object passed to the listener
+         * @param nanos   The time taken by the listener, in nanoseconds
+         */
+        void slowListener( ListenerMetrics metrics, IEvent event, long nanos );
+    }
+
+    private final ConcurrentMap< Class<?>, TypeMetrics > types = new ConcurrentHashMap<Class<?>, TypeMetrics>();
+    private final ConcurrentMap< ListenerEntry, ListenerMetrics > listeners = new ConcurrentHashMap<ListenerEntry, ListenerMetrics>();
+    /** The number of listeners after which unbound listeners are next pruned */
+    private volatile int pruneAt = 64;
+
+    private volatile long slowThreshold = Long.MAX_VALUE;
+    private volatile SlowListenerCallback slowCallback;
+
+    /**
+     * Set the slow listener threshold.
+     *
+     * @param nanos    The time a listener may take before it is reported, in nanoseconds
+     * @param callback The callback to notify of slow listeners, or {@code null} to stop reporting
+     */
+    public void setSlowListenerThreshold( long nanos, SlowListenerCallback callback ) {
+        this.slowCallback = callback;
+        this.slowThreshold = callback == null ? Long.MAX_VALUE : nanos;
+    }
+
+    /**
+     * @return The metrics for each fired event class.  The map is a live view.
+     */
+    public Map< Class<?>, TypeMetrics > getTypeMetrics() {
+        return Collections.unmodifiableMap( types );
+    }
+
+    /**
+     * @param eventClass A concrete event class
+     * @return The metrics for the event class, or {@code null} if it hasn't been fired
+     */
+    public TypeMetrics getTypeMetrics( Class<?> eventClass ) {
+        return types.get( eventClass );
+    }
+
+    /**
+     * @return The metrics for each listener which is still bound and has been invoked
+     */
+    public List< ListenerMetrics > getListenerMetrics() {
+        List< ListenerMetrics > result = new ArrayList<ListenerMetrics>( listeners.size() );
+        for ( ListenerMetrics metrics : listeners.values() ) {
+            if ( !metrics.entry.isUnbound() ) result.add( metrics );
+        }
+        return result;
+    }
+
+    TypeMetrics forType( Class<?> eventClass ) {
+        TypeMetrics metrics = types.get( eventClass );
+        if ( metrics == null ) {
+            metrics = new TypeMetrics( eventClass );
+            TypeMetrics raced = types.putIfAbsent( eventClass, metrics );
+            if ( raced != null ) metrics = raced;
+        }
+        return metrics;
+    }
+
+    /**
+     * Record the invocation of a listener.
+     *
+     * @param entry The listener
+     * @param type  The metrics of the fired event class
+     * @param event The event object passed to the listener
+     * @param nanos The time taken by the listener
+     */
+    void invoked( ListenerEntry entry, TypeMetrics type, IEvent event, long nanos ) {
+        type.invocations.increment();
+
+        ListenerMetrics metrics = listeners.get( entry );
+        if ( metrics == null ) {
+            metrics = new ListenerMetrics( entry );
+            ListenerMetrics raced = listeners.putIfAbsent( entry, metrics );
+            if ( raced != null ) metrics = raced;
+            else if ( listeners.size() >= pruneAt ) prune();
+        }
+        metrics.latency.record( nanos );
+
+        if ( nanos >= slowThreshold ) {
+            SlowListenerCallback callback = slowCallback;
+            if ( callback != null ) callback.slowListener( metrics, event, nanos );
+        }
+    }
+
+    /**
+     * Drop the metrics of unbound listeners, so that listener churn doesn't grow the metrics
+     * without bound.  Pruning again waits until the number of listeners has doubled.
+     */
+    private void prune() {
+        for ( Iterator< ListenerEntry > i = listeners.keySet().iterator(); i.hasNext(); ) {
+            if ( i.next().isUnbound() ) i.remove();
+        }
+        pruneAt = Math.max( 64, listeners.size() * 2 );
+    }
+
+    /**
+     * The metrics for one concrete event class.
+     */
+    public static final class TypeMetrics {
+        private final Class<?> eventClass;
+        final LongAdder fired = new LongAdder();
+        final LongAdder handled = new LongAdder();
+        final LongAdder cancelled = new LongAdder();
+        final LongAdder invocations = new LongAdder();
+        final LongAdder cloned = new LongAdder();
+
+        private TypeMetrics( Class<?> eventClass ) {
+            this.eventClass = eventClass;
+        }
+
+        public Class<?> getEventClass() {
+            return eventClass;
+        }
+
+        /**
+         * @return The number of times an event of this class has been fired
+         */
+        public long getFired() {
+            return fired.sum();
+        }
+
+        /**
+         * @return The number of fired events which were handled and not cancelled
+         */
+        public long getHandled() {
+            return handled.sum();
+        }
+
+        /**
+         * @return The number of fired events which were cancelled
+         */
+        public long getCancelled() {
+            return cancelled.sum();
+        }
+
+        /**
+         * @return The number of times a listener has been invoked for an event of this class
+         */
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        /**
+         * @return The number of times {@link AbstractEventService#prepEvent} has returned
+         *          a different object than the fired event, ie. a clone
+         */
+        public long getCloned() {
+            return cloned.sum();
+        }
+    }
+
+    /**
+     * The metrics for one bound listener.
+     */
+    public static final class ListenerMetrics {
+        private final ListenerEntry entry;
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private ListenerMetrics( ListenerEntry entry ) {
+            this.entry = entry;
+        }
+
+        /**
+         * @return The listener, or the object on which an annotated listener method is
+         *          declared.  {@code null} if a weakly bound listener has been collected.
+         */
+        public Object getListener() {
+            return entry.getTarget();
+        }
+
+        /**
+         * @return The annotated listener method, or {@code null} if the listener is an {@link IListener}
+         */
+        public Method getMethod() {
+            return entry.getMethod();
+        }
+
+        /**
+         * @return The histogram of the listener's invocation times
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+    }
+}
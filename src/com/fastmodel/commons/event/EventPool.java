@@ -0,0 +1,102 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.function.Supplier;
+
+/**
+ * A pool of recyclable event objects of a single type.  Pooled events are kept in small
+ * per-thread free lists, so obtaining and recycling events rarely contends.  An event
+ * released on another thread than the one which obtained it is returned to the free list
+ * of the releasing thread; once that list is full, its events are handed over in bulk to
+ * a shared depot, from which threads whose lists are empty refill theirs.  Events fired
+ * on one thread and released by listeners on another are therefore reused as well.
+ *
+ * <pre>
+ *     private final EventPool&lt;PriceEvent&gt; pool = new EventPool&lt;PriceEvent&gt;( PriceEvent::new );
+ *     ...
+ *     service.fire( pool.obtain().set( symbol, price ));
+ * </pre>
+ *
+ * Debug mode, enabled with {@link #setDebug(boolean)} or the system property
+ * {@code com.fastmodel.commons.event.EventPool.debug}, records where each event is
+ * released and stops released events from being reused, so that any later use of a
+ * released event fails in {@link AbstractRecyclableEvent#checkLive()},
+ * {@link AbstractRecyclableEvent#retain()} or {@link IEventService#fire}.
+ *
+ * @param <Event> The type of the pooled events
+ *
+ * @version 1.0
+ */
+public final class EventPool< Event extends AbstractRecyclableEvent > {
+
+	private static volatile boolean debug = Boolean.getBoolean( "com.fastmodel.commons.event.EventPool.debug" );   // NON-NLS
+
+	private final Supplier< ? extends Event > factory;
+	private final FreeList free = new FreeList();
+
+	/**
+	 * Create a pool.
+	 *
+	 * @param factory Creates new event objects when the pool is empty
+	 */
+	public EventPool( Supplier< ? extends Event > factory ) {
+		if ( factory == null ) throw new NullPointerException();
+		this.factory = factory;
+	}
+
+	/**
+	 * Obtain an event object, holding a single reference.
+	 *
+	 * @return A recycled event object, or a new one if none is available
+	 */
+	public Event obtain() {
+		@SuppressWarnings( "unchecked" )
+		Event event = (Event) free.take();
+		if ( event != null ) {
+			event.revive();
+			return event;
+		}
+
+		event = factory.get();
+		if ( event.pool != null || event.isReleased() ) {
+			throw new IllegalStateException( "Event factory must create new event objects" );   // NON-NLS
+		}
+		event.pool = this;
+		return event;
+	}
+
+	void recycle( AbstractRecyclableEvent event ) {
+		event.reset();
+		if ( !debug ) free.give( event );
+	}
+
+	/**
+	 * Enable or disable debug mode for all pools.
+	 *
+	 * @param debug {@code true} to detect use of events after their release
+	 */
+	public static void setDebug( boolean debug ) {
+		EventPool.debug = debug;
+	}
+
+	/**
+	 * @return {@code true} if debug mode is enabled
+	 */
+	public static boolean isDebug() {
+		return debug;
+	}
+}
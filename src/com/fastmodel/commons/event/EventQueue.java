@@ -0,0 +1,188 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The queue of a queued event service: either unbounded, or a {@link BoundedQueue} with
+ * {@link OverflowSettings} deciding what happens to events fired while it is full.
+ * Elements are whatever the service queues for an event, such as the event itself or a
+ * wrapper holding its future.
+ *
+ * @version 1.0
+ */
+final class EventQueue {
+
+    /** The longest a blocked producer parks before retrying */
+    private static final long MAX_PARK_NANOS = 1000000L;
+
+    /**
+     * The service owning a queue, which completes the elements the queue doesn't
+     * dispatch, and lets blocked producers wait for its consumer.
+     */
+    interface Owner {
+
+        /**
+         * Wait briefly for the consumer to make room, usually by making sure it is
+         * scheduled and then calling {@link #park}.  Called repeatedly while a producer is
+         * blocked by {@link OverflowPolicy#BLOCK}.
+         *
+         * @param attempt The number of times the producer has already waited for this element
+         *
+         * @throws IllegalStateException if the calling thread is dispatching the queue's
+         *                               events, and so would wait for itself forever
+         */
+        void awaitRoom( int attempt );
+
+        /**
+         * Complete an element which won't be dispatched, because it was dropped by
+         * {@link OverflowPolicy#DROP_NEWEST} or {@link OverflowPolicy#DROP_OLDEST}, or
+         * handed to the sink by {@link OverflowPolicy#SPILL}.  Elements which are neither
+         * queued nor discarded, because offering them threw an exception, are completed
+         * by the caller of {@link #offer}.
+         *
+         * @param element The queued element
+         * @param policy  The policy which was applied
+         */
+        void discarded( Object element, OverflowPolicy policy );
+    }
+
+    private final Owner owner;
+    private final Queue< Object > unbounded;
+    private final BoundedQueue< Object > bounded;
+    private final OverflowSettings< ? > settings;
+    private final OverflowCounters counters;
+
+    /**
+     * Create an unbounded queue.
+     */
+    EventQueue( Owner owner ) {
+        this.owner = owner;
+        this.unbounded = new ConcurrentLinkedQueue<Object>();
+        this.bounded = null;
+        this.settings = null;
+        this.counters = new OverflowCounters();
+    }
+
+    /**
+     * Create a bounded queue.
+     *
+     * @param capacity The number of elements the queue can hold, which must be a power of two
+     * @param settings The overflow policies
+     * @param counters The counters to record overflows to
+     */
+    EventQueue( Owner owner, int capacity, OverflowSettings< ? > settings, OverflowCounters counters ) {
+        if ( settings == null || counters == null ) throw new NullPointerException();
+        this.owner = owner;
+        this.unbounded = null;
+        this.bounded = new BoundedQueue<Object>( capacity );
+        this.settings = settings;
+        this.counters = counters;
+    }
+
+    /**
+     * Queue an element, applying the overflow policy for the event if the queue is full.
+     *
+     * @param element The element to queue
+     * @param event   The event object the element is for
+     * @return {@code true} if the element was queued, {@code false} if it was discarded
+     *          and passed to {@link Owner#discarded}
+     *
+     * @throws EventQueueOverflow if the queue is full and the policy is {@link OverflowPolicy#FAIL}
+     * @throws RuntimeException if the overflow sink throws one, under {@link OverflowPolicy#SPILL}
+     */
+    boolean offer( Object element, IEvent event ) {
+        if ( bounded == null ) {
+            unbounded.add( element );
+            return true;
+        }
+
+        if ( !bounded.offer( element )) {
+            OverflowPolicy policy = settings.getPolicy( event.getClass() );
+            counters.applied( policy );
+            switch ( policy ) {
+                case BLOCK:
+                    int attempt = 0;
+                    do {
+                        owner.awaitRoom( attempt++ );
+                    } while ( !bounded.offer( element ));
+                    break;
+
+                case DROP_NEWEST:
+                    owner.discarded( element, policy );
+                    return false;
+
+                case DROP_OLDEST:
+                    while ( !bounded.offer( element )) {
+                        Object oldest = bounded.poll();
+                        if ( oldest != null ) owner.discarded( oldest, policy );
+                    }
+                    break;
+
+                case FAIL:
+                    throw new EventQueueOverflow( event, policy );
+
+                case SPILL:
+                    settings.spill( event );
+                    owner.discarded( element, policy );
+                    return false;
+            }
+        }
+        counters.depth( bounded.size() );
+        return true;
+    }
+
+    /**
+     * Park a blocked producer, backing off from a few yields to parking for up to a
+     * millisecond, so that a producer blocked for long doesn't keep a core busy.
+     *
+     * @param blocker The object the producer is blocked on
+     * @param attempt The number of times the producer has already waited
+     */
+    static void park( Object blocker, int attempt ) {
+        if ( attempt < 8 ) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos( blocker, Math.min( 1000L << Math.min( attempt - 8, 10 ), MAX_PARK_NANOS ));
+        }
+    }
+
+    Object poll() {
+        return bounded == null ? unbounded.poll() : bounded.poll();
+    }
+
+    boolean isEmpty() {
+        return bounded == null ? unbounded.isEmpty() : bounded.isEmpty();
+    }
+
+    /**
+     * @return The number of queued elements.  For an unbounded queue, this traverses the queue.
+     */
+    int size() {
+        return bounded == null ? unbounded.size() : bounded.size();
+    }
+
+    /**
+     * @return The overflow counters.  An unbounded queue never overflows, and doesn't
+     *          record its high-water mark.
+     */
+    OverflowCounters getCounters() {
+        return counters;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Signals that an event was not dispatched because the queue of a queued event service
+ * was full.
+ *
+ * @version 1.0
+ */
+public class EventQueueOverflow extends RejectedExecutionException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient IEvent event;
+    private final OverflowPolicy policy;
+
+    /**
+     * @param event  The event which was not dispatched
+     * @param policy The overflow policy which was applied to it
+     */
+    public EventQueueOverflow( IEvent event, OverflowPolicy policy ) {
+        super( String.format( "Event queue full: %s (%s)", event.getClass().getName(), policy ));  // NON-NLS
+        this.event = event;
+        this.policy = policy;
+    }
+
+    public IEvent getEvent() {
+        return event;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+}
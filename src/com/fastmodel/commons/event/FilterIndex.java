@@ -0,0 +1,382 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable snapshot of a service's filtered listeners, indexed by attribute.  A
+ * service replaces its snapshot (copy-on-write) whenever a filtered listener is bound
+ * or unbound.
+ *
+ * The filters on each {@link EventAttribute} are indexed together: equality and
+ * membership filters in a hash map by value, and range filters in a sorted array of
+ * their distinct bounds, which divides the attribute's values into segments (each bound,
+ * and the open intervals between bounds) with a precomputed list of matching listeners.
+ * Firing an event therefore reads each applicable attribute once, and finds the
+ * matching listeners with one hash lookup and one binary search.
+ *
+ * The matching listeners are merged into the service's unfiltered dispatch list.  When
+ * the matching listeners all come from one hash entry or segment, which is the common
+ * case, the merged list is cached there, so steady-state firing doesn't allocate.
+ *
+ * @version 1.0
+ */
+final class FilterIndex {
+
+    private static final AttributeIndex[] NO_ATTRIBUTES = new AttributeIndex[ 0 ];
+
+    /** The filtered listeners, in the order they were bound */
+    private final Filtered[] filtered;
+    private final AttributeIndex[] attributes;
+    /** The attribute indexes applicable to each fired event class */
+    private final ConcurrentMap< Class<?>, AttributeIndex[] > byClass = new ConcurrentHashMap<Class<?>, AttributeIndex[]>();
+
+    private FilterIndex( Filtered[] filtered ) {
+        this.filtered = filtered;
+        this.attributes = index( filtered );
+    }
+
+    /**
+     * Create a snapshot with a filtered listener added after the existing ones.  Listeners
+     * which have been unbound are purged from the new snapshot.
+     *
+     * @param index  The current snapshot, or {@code null} if there is none
+     * @param entry  The listener
+     * @param filter The listener's filter
+     * @return The new snapshot
+     */
+    static FilterIndex with( FilterIndex index, ListenerEntry entry, EventFilter< ? > filter ) {
+        List< Filtered > live = live( index, null );
+        live.add( new Filtered( entry, filter ));
+        return new FilterIndex( live.toArray( new Filtered[ live.size() ] ));
+    }
+
+    /**
+     * Create a snapshot without a filtered listener, purging any other unbound listeners.
+     *
+     * @param entry The listener to remove
+     * @return The new snapshot; this snapshot if the listener isn't indexed in it;
+     *          or {@code null} if no listeners remain
+     */
+    FilterIndex without( ListenerEntry entry ) {
+        boolean found = false;
+        for ( Filtered each : filtered ) {
+            if ( each.entry == entry ) found = true;
+        }
+        if ( !found ) return this;
+
+        List< Filtered > live = live( this, entry );
+        return live.isEmpty() ? null : new FilterIndex( live.toArray( new Filtered[ live.size() ] ));
+    }
+
+    private static List< Filtered > live( FilterIndex index, ListenerEntry removed ) {
+        if ( index == null ) return new ArrayList<Filtered>( 1 );
+
+        List< Filtered > live = new ArrayList<Filtered>( index.filtered.length + 1 );
+        for ( Filtered each : index.filtered ) {
+            if ( each.entry != removed && !each.entry.isUnbound() ) live.add( each );
+        }
+        return live;
+    }
+
+    /**
+     * @return The filtered listeners, in the order they were bound
+     */
+    List< ListenerEntry > entries() {
+        List< ListenerEntry > entries = new ArrayList<ListenerEntry>( filtered.length );
+        for ( Filtered each : filtered ) entries.add( each.entry );
+        return entries;
+    }
+
+    /**
+     * Add the filtered listeners matching an event to its unfiltered listeners.
+     *
+     * @param event The fired event object
+     * @param base  The unfiltered listeners for the event, in dispatch order
+     * @return The listeners, in dispatch order.  At equal priority, unfiltered listeners
+     *          come first.
+     */
+    ListenerEntry[] getDispatchList( IEvent event, ListenerEntry[] base ) {
+        Class<?> firedClass = event.getClass();
+        Leaf first = null;
+        List< Leaf > more = null;
+        for ( AttributeIndex index : forClass( firedClass )) {
+            Object value = index.attribute.read( event );
+            if ( value == null ) continue;
+
+            Leaf equal = index.equal.get( value );
+            if ( equal != null ) {
+                if ( first == null ) first = equal;
+                else more = add( more, equal );
+            }
+            Leaf range = index.segment( value );
+            if ( range != null ) {
+                if ( first == null ) first = range;
+                else more = add( more, range );
+            }
+        }
+
+        if ( first == null ) return base;
+        if ( more == null ) return first.getDispatchList( firedClass, base );
+
+        // Listeners matched through several attributes are ordered by priority, then binding order
+        more.add( first );
+        List< Integer > positions = new ArrayList<Integer>();
+        for ( Leaf leaf : more ) {
+            for ( int i = 0; i < leaf.entries.length; i++ ) {
+                if ( accepts( leaf.entries[ i ], firedClass )) positions.add( leaf.positions[ i ] );
+            }
+        }
+        sort( positions );
+        List< ListenerEntry > matched = new ArrayList<ListenerEntry>( positions.size() );
+        for ( int position : positions ) matched.add( filtered[ position ].entry );
+        return merge( base, matched );
+    }
+
+    private static List< Leaf > add( List< Leaf > leaves, Leaf leaf ) {
+        if ( leaves == null ) leaves = new ArrayList<Leaf>();
+        leaves.add( leaf );
+        return leaves;
+    }
+
+    private AttributeIndex[] forClass( Class<?> firedClass ) {
+        AttributeIndex[] applicable = byClass.get( firedClass );
+        if ( applicable == null ) {
+            List< AttributeIndex > found = new ArrayList<AttributeIndex>( attributes.length );
+            for ( AttributeIndex index : attributes ) {
+                if ( index.attribute.getEventClass().isAssignableFrom( firedClass )) found.add( index );
+            }
+            applicable = found.isEmpty() ? NO_ATTRIBUTES : found.toArray( new AttributeIndex[ found.size() ] );
+            byClass.putIfAbsent( firedClass, applicable );
+        }
+        return applicable;
+    }
+
+    private static boolean accepts( ListenerEntry entry, Class<?> firedClass ) {
+        Class<?> socketType = entry.getSocketType();
+        return socketType == null || socketType.isAssignableFrom( firedClass );
+    }
+
+    /**
+     * Sort positions in the filtered listeners into dispatch order: by descending
+     * priority, and in binding order at equal priority.
+     */
+    private void sort( List< Integer > positions ) {
+        Collections.sort( positions, ( a, b ) -> {
+            int byPriority = Integer.compare( filtered[ b ].entry.getPriority(), filtered[ a ].entry.getPriority() );
+            return byPriority != 0 ? byPriority : Integer.compare( a, b );
+        });
+    }
+
+    /**
+     * Merge filtered listeners into the unfiltered listeners.  At equal priority,
+     * unfiltered listeners come first.
+     */
+    private static ListenerEntry[] merge( ListenerEntry[] base, List< ListenerEntry > matched ) {
+        if ( matched.isEmpty() ) return base;
+
+        ListenerEntry[] merged = new ListenerEntry[ base.length + matched.size() ];
+        int i = 0, j = 0;
+        for ( int k = 0; k < merged.length; k++ ) {
+            if ( j == matched.size() || ( i < base.length && base[ i ].getPriority() >= matched.get( j ).getPriority() )) {
+                merged[ k ] = base[ i++ ];
+            } else {
+                merged[ k ] = matched.get( j++ );
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Build the attribute indexes for a set of filtered listeners.
+     */
+    private AttributeIndex[] index( Filtered[] filtered ) {
+        Map< EventAttribute< ?, ? >, List< Integer >> byAttribute = new IdentityHashMap<EventAttribute<?, ?>, List<Integer>>();
+        List< EventAttribute< ?, ? >> order = new ArrayList<EventAttribute<?, ?>>();
+        for ( int position = 0; position < filtered.length; position++ ) {
+            EventAttribute< ?, ? > attribute = filtered[ position ].filter.getAttribute();
+            List< Integer > positions = byAttribute.get( attribute );
+            if ( positions == null ) {
+                positions = new ArrayList<Integer>();
+                byAttribute.put( attribute, positions );
+                order.add( attribute );
+            }
+            positions.add( position );
+        }
+
+        AttributeIndex[] indexes = new AttributeIndex[ order.size() ];
+        for ( int i = 0; i < indexes.length; i++ ) {
+            indexes[ i ] = new AttributeIndex( order.get( i ), byAttribute.get( order.get( i )));
+        }
+        return indexes;
+    }
+
+    /**
+     * The filters on one attribute.
+     */
+    private final class AttributeIndex {
+        private final EventAttribute< ?, ? > attribute;
+        /** The listeners with an equality or membership filter, by value */
+        private final Map< Object, Leaf > equal = new HashMap<Object, Leaf>();
+        /** The distinct bounds of the range filters, in ascending order */
+        private final Object[] bounds;
+        /** The listeners for each bound (odd indexes) and each interval between bounds (even indexes) */
+        private final Leaf[] segments;
+
+        private AttributeIndex( EventAttribute< ?, ? > attribute, List< Integer > positions ) {
+            this.attribute = attribute;
+
+            Map< Object, List< Integer >> byValue = new HashMap<Object, List<Integer>>();
+            List< Integer > ranges = new ArrayList<Integer>();
+            TreeSet< Object > bounds = new TreeSet<Object>();
+            for ( int position : positions ) {
+                EventFilter< ? > filter = filtered[ position ].filter;
+                if ( filter.isRange() ) {
+                    ranges.add( position );
+                    if ( filter.getLower() != null ) bounds.add( filter.getLower() );
+                    if ( filter.getUpper() != null ) bounds.add( filter.getUpper() );
+                    continue;
+                }
+                for ( Object value : filter.getValues() ) {
+                    List< Integer > matching = byValue.get( value );
+                    if ( matching == null ) {
+                        matching = new ArrayList<Integer>();
+                        byValue.put( value, matching );
+                    }
+                    // A value listed twice by one filter must not invoke its listener twice
+                    if ( matching.isEmpty() || matching.get( matching.size() - 1 ) != position ) matching.add( position );
+                }
+            }
+            for ( Map.Entry< Object, List< Integer >> entry : byValue.entrySet() ) {
+                equal.put( entry.getKey(), new Leaf( entry.getValue() ));
+            }
+
+            this.bounds = bounds.toArray();
+            this.segments = ranges.isEmpty() ? null : new Leaf[ this.bounds.length * 2 + 1 ];
+            if ( segments == null ) return;
+
+            for ( int segment = 0; segment < segments.length; segment++ ) {
+                List< Integer > matching = new ArrayList<Integer>();
+                for ( int position : ranges ) {
+                    if ( contains( filtered[ position ].filter, segment )) matching.add( position );
+                }
+                if ( !matching.isEmpty() ) segments[ segment ] = new Leaf( matching );
+            }
+        }
+
+        /**
+         * @return The range listeners matching a value, or {@code null} if there are none
+         */
+        private Leaf segment( Object value ) {
+            if ( segments == null ) return null;
+            int i = Arrays.binarySearch( bounds, value );
+            return segments[ i >= 0 ? 2 * i + 1 : -2 * ( i + 1 ) ];
+        }
+
+        /**
+         * Check whether a range filter matches all values in a segment.
+         */
+        private boolean contains( EventFilter< ? > filter, int segment ) {
+            if ( segment % 2 == 1 ) return filter.matches( bounds[ segment / 2 ] );
+
+            // The open interval below bounds[ next ], and above the bound before it
+            int next = segment / 2;
+            return ( filter.getLower() == null || Arrays.binarySearch( bounds, filter.getLower() ) < next )
+                    && ( filter.getUpper() == null || Arrays.binarySearch( bounds, filter.getUpper() ) >= next );
+        }
+    }
+
+    /**
+     * The listeners matching one attribute value, or one segment of a range index, in
+     * dispatch order.
+     */
+    private final class Leaf {
+        private final ListenerEntry[] entries;
+        /** The position of each entry in the filtered listeners */
+        private final int[] positions;
+        /** The dispatch list most recently built from this leaf */
+        private volatile Merged cache;
+
+        private Leaf( List< Integer > positions ) {
+            sort( positions );
+            this.entries = new ListenerEntry[ positions.size() ];
+            this.positions = new int[ positions.size() ];
+            for ( int i = 0; i < entries.length; i++ ) {
+                this.positions[ i ] = positions.get( i );
+                this.entries[ i ] = filtered[ positions.get( i ) ].entry;
+            }
+        }
+
+        /**
+         * Merge the listeners which accept the fired class into the unfiltered listeners.
+         * The result is cached until the next event of another class, or until the
+         * unfiltered listeners change.
+         */
+        private ListenerEntry[] getDispatchList( Class<?> firedClass, ListenerEntry[] base ) {
+            Merged cached = cache;
+            if ( cached != null && cached.firedClass == firedClass && cached.base == base ) {
+                return cached.listeners;
+            }
+
+            List< ListenerEntry > matched = new ArrayList<ListenerEntry>( entries.length );
+            for ( ListenerEntry entry : entries ) {
+                if ( accepts( entry, firedClass )) matched.add( entry );
+            }
+            ListenerEntry[] merged = merge( base, matched );
+
+            cache = new Merged( firedClass, base, merged );
+            return merged;
+        }
+    }
+
+    /**
+     * A dispatch list built from a leaf, and what it was built from.
+     */
+    private static final class Merged {
+        private final Class<?> firedClass;
+        private final ListenerEntry[] base;
+        private final ListenerEntry[] listeners;
+
+        private Merged( Class<?> firedClass, ListenerEntry[] base, ListenerEntry[] listeners ) {
+            this.firedClass = firedClass;
+            this.base = base;
+            this.listeners = listeners;
+        }
+    }
+
+    /**
+     * A filtered listener
+     */
+    private static final class Filtered {
+        private final ListenerEntry entry;
+        private final EventFilter< ? > filter;
+
+        private Filtered( ListenerEntry entry, EventFilter< ? > filter ) {
+            this.entry = entry;
+            this.filter = filter;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * Records Java Flight Recorder events for event dispatch while a recording is running.
+ *
+ * The recorder itself, {@code FlightRecorderEvents}, is built from the separate
+ * {@code jfr} source root, since the {@code jdk.jfr} API needs Java 11.  It is loaded
+ * reflectively, so the event services still work on a runtime without it, or when it
+ * isn't on the class path.
+ *
+ * @version 1.0
+ */
+abstract class FlightRecording {
+
+    private static final String RECORDER = "com.fastmodel.commons.event.FlightRecorderEvents";   // NON-NLS
+
+    /** The recorder while a recording is running, otherwise {@code null} */
+    static volatile FlightRecording active;
+
+    static {
+        try {
+            Class.forName( RECORDER ).getDeclaredConstructor().newInstance();
+        } catch ( ReflectiveOperationException e ) {
+            // No recorder on the class path
+        } catch ( LinkageError e ) {
+            // No flight recorder in this runtime
+        }
+    }
+
+    /**
+     * Set whether a recording is running, when the state of a recording changes.
+     */
+    final void setRecording( boolean running ) {
+        active = running ? this : null;
+    }
+
+    /**
+     * @return {@code true} if either event is enabled in the running recordings
+     */
+    abstract boolean isEnabled();
+
+    /**
+     * @return {@code true} if listener invocations are recorded, so that
+     *          {@link #beginInvocation()} may be called
+     */
+    abstract boolean recordsInvocations();
+
+    /**
+     * @return A started flight recorder event for a fire, or {@code null} if fires
+     *          aren't recorded
+     */
+    abstract Object beginFire();
+
+    abstract void endFire( Object fire, IEvent event, int listenerCount, boolean handled, boolean cancelled );
+
+    /**
+     * @return A started flight recorder event for a listener invocation
+     */
+    abstract Object beginInvocation();
+
+    abstract void endInvocation( Object invocation, ListenerEntry listener, IEvent event );
+}
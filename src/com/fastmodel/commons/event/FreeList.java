@@ -0,0 +1,120 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A free list of event objects available for reuse.  Each thread keeps a small bounded
+ * stack, so taking and returning objects usually doesn't contend.  When a thread's stack
+ * fills up, the whole stack is handed to a small shared depot, and a thread whose stack
+ * is empty takes a full one from it, so that objects released on consumer threads are
+ * reused by the producer threads which obtain them.
+ *
+ * @version 1.0
+ */
+final class FreeList {
+
+    private static final int CAPACITY = 16;
+    /** The number of full stacks the depot holds; further full stacks are dropped */
+    private static final int DEPOT_SIZE = 8;
+
+    private static final ClassValue< FreeList > FREE_LISTS = new ClassValue< FreeList >() {
+        @Override
+        protected FreeList computeValue( Class<?> type ) {
+            return new FreeList();
+        }
+    };
+
+    private final ThreadLocal< Stack > stacks = new ThreadLocal< Stack >() {
+        @Override
+        protected Stack initialValue() {
+            return new Stack();
+        }
+    };
+    /** Full stacks, handed over between threads */
+    private final AtomicReferenceArray< Object[] > depot = new AtomicReferenceArray<Object[]>( DEPOT_SIZE );
+
+    FreeList() {}
+
+    /**
+     * @param type The concrete class of the objects in the list
+     * @return The free list for the specified type
+     */
+    static FreeList forClass( Class<?> type ) {
+        return FREE_LISTS.get( type );
+    }
+
+    /**
+     * @return An object from this thread's free list, or from the depot if the thread's
+     *          list is empty, or {@code null} if both are empty
+     */
+    Object take() {
+        Stack stack = stacks.get();
+        if ( stack.size == 0 ) {
+            Object[] full = takeFull();
+            if ( full == null ) return null;
+
+            stack.spare = stack.objects;
+            stack.objects = full;
+            stack.size = CAPACITY;
+        }
+
+        Object object = stack.objects[ --stack.size ];
+        stack.objects[ stack.size ] = null;
+        return object;
+    }
+
+    /**
+     * Return an object to this thread's free list.  If the list is full, it is handed to
+     * the depot first; the object is dropped if the depot is full as well.
+     *
+     * @param object The object, which must no longer be in use
+     */
+    void give( Object object ) {
+        Stack stack = stacks.get();
+        if ( stack.size == CAPACITY ) {
+            if ( !giveFull( stack.objects )) return;
+
+            stack.objects = stack.spare != null ? stack.spare : new Object[ CAPACITY ];
+            stack.spare = null;
+            stack.size = 0;
+        }
+        stack.objects[ stack.size++ ] = object;
+    }
+
+    private Object[] takeFull() {
+        for ( int i = 0; i < DEPOT_SIZE; i++ ) {
+            Object[] full = depot.get( i );
+            if ( full != null && depot.compareAndSet( i, full, null )) return full;
+        }
+        return null;
+    }
+
+    private boolean giveFull( Object[] full ) {
+        for ( int i = 0; i < DEPOT_SIZE; i++ ) {
+            if ( depot.get( i ) == null && depot.compareAndSet( i, null, full )) return true;
+        }
+        return false;
+    }
+
+    private static final class Stack {
+        private Object[] objects = new Object[ CAPACITY ];
+        /** An empty array left over from taking a full stack from the depot */
+        private Object[] spare;
+        private int size;
+    }
+}
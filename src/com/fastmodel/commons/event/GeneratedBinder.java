@@ -0,0 +1,186 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+
+/**
+ * The base class of the binders generated at compile time by the {@code ListenerProcessor},
+ * from the separate processor artifact.  A generated binder
+ * describes the {@link Listener} methods of one class, which the processor has already
+ * checked, and invokes them with direct calls, so that binding an object of the class
+ * needs no reflection.  Classes without a generated binder are bound through reflection.
+ *
+ * Binders are found through the {@link IListenerIndex}es generated alongside them, and are
+ * not meant to be written by hand.
+ *
+ * @param <Target> The listening class
+ *
+ * @version 1.0
+ */
+public abstract class GeneratedBinder< Target > {
+
+    private static final IListenerIndex[] NO_INDEXES = new IListenerIndex[ 0 ];
+
+    /**
+     * The listener indexes visible to each class loader.  The indexes are held softly, as
+     * they may have been defined by the loader, and would otherwise keep it alive.
+     */
+    private static final Map< ClassLoader, Reference< IListenerIndex[] >> INDEXES =
+            new WeakHashMap<ClassLoader, Reference<IListenerIndex[]>>();
+
+    private final Class< Target > listenerClass;
+    private final List< Descriptor > listeners = new ArrayList<Descriptor>();
+
+    /**
+     * @param listenerClass The listening class
+     */
+    protected GeneratedBinder( Class< Target > listenerClass ) {
+        this.listenerClass = listenerClass;
+    }
+
+    /**
+     * Describe the next listener method.  Listener methods are numbered in the order they
+     * are described, starting from zero.
+     *
+     * @param name          The method's name
+     * @param parameterType The method's parameter type
+     * @param eventType     The event type the method listens for
+     * @param strict        {@link Listener#strict()}
+     * @param readOnly      {@link Listener#readOnly()}
+     * @param priority      {@link Listener#priority()}
+     * @param filter        The filter named by {@link Listener#filter()}, if the binder can
+     *                      read its field, or {@code null}
+     * @param filterName    {@link Listener#filter()}, or {@code null} if the method isn't
+     *                      filtered.  If the binder couldn't read the filter's field, it is
+     *                      resolved by reflection.
+     */
+    protected final void listener( String name, Class<?> parameterType, Class<?> eventType, boolean strict,
+                                   boolean readOnly, int priority, EventFilter<?> filter, String filterName ) {
+        listeners.add( new Descriptor( name, parameterType, eventType, strict, readOnly, priority, filter, filterName ));
+    }
+
+    /**
+     * Invoke a listener method.
+     *
+     * @param target The listening object
+     * @param index  The number of the listener method
+     * @param event  The event object, which is an instance of the method's parameter type
+     * @throws Exception Any exception thrown by the listener method
+     */
+    protected abstract void invoke( Target target, int index, IEvent event ) throws Exception;
+
+    /**
+     * @return The listening class
+     */
+    public final Class< Target > getListenerClass() {
+        return listenerClass;
+    }
+
+    List< Descriptor > getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Find the generated binder for a class.
+     *
+     * @param type The listening class
+     * @return The binder, or {@code null} if none was generated for the class
+     */
+    static GeneratedBinder< ? > forClass( Class<?> type ) {
+        ClassLoader loader = type.getClassLoader();
+        if ( loader == null ) return null;
+
+        for ( IListenerIndex index : getIndexes( loader )) {
+            GeneratedBinder< ? > binder = index.getBinder( type.getName() );
+            if ( binder != null && binder.listenerClass == type ) return binder;
+        }
+        return null;
+    }
+
+    /**
+     * Get the listener indexes visible to a class loader, loading them only once.  Indexes
+     * which fail to load, such as those left registered for binders since deleted, are
+     * skipped, and their classes are bound by reflection.
+     *
+     * @param loader The class loader
+     * @return The indexes
+     */
+    private static synchronized IListenerIndex[] getIndexes( ClassLoader loader ) {
+        Reference< IListenerIndex[] > cached = INDEXES.get( loader );
+        IListenerIndex[] indexes = cached == null ? null : cached.get();
+        if ( indexes == null ) {
+            List< IListenerIndex > loaded = new ArrayList<IListenerIndex>();
+            Iterator< IListenerIndex > providers = ServiceLoader.load( IListenerIndex.class, loader ).iterator();
+            while ( hasNext( providers )) {
+                try {
+                    loaded.add( providers.next() );
+                } catch ( ServiceConfigurationError e ) {
+                    // A stale or broken provider; the iterator has moved past it
+                }
+            }
+            indexes = loaded.isEmpty() ? NO_INDEXES : loaded.toArray( new IListenerIndex[ loaded.size() ] );
+            INDEXES.put( loader, new SoftReference<IListenerIndex[]>( indexes ));
+        }
+        return indexes;
+    }
+
+    /**
+     * @return {@code false} once there are no more providers, or their configuration can't
+     *          be read
+     */
+    private static boolean hasNext( Iterator< IListenerIndex > providers ) {
+        try {
+            return providers.hasNext();
+        } catch ( ServiceConfigurationError e ) {
+            return false;
+        }
+    }
+
+    /**
+     * The description of one listener method
+     */
+    static final class Descriptor {
+        final String name;
+        final Class<?> parameterType;
+        final Class<?> eventType;
+        final boolean strict;
+        final boolean readOnly;
+        final int priority;
+        final EventFilter<?> filter;
+        final String filterName;
+
+        private Descriptor( String name, Class<?> parameterType, Class<?> eventType, boolean strict, boolean readOnly,
+                            int priority, EventFilter<?> filter, String filterName ) {
+            this.name = name;
+            this.parameterType = parameterType;
+            this.eventType = eventType;
+            this.strict = strict;
+            this.readOnly = readOnly;
+            this.priority = priority;
+            this.filter = filter;
+            this.filterName = filterName;
+        }
+    }
+}
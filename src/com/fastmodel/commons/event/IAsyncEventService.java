@@ -0,0 +1,64 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An Event Service which can also dispatch events asynchronously, so that slow
+ * listeners don't hold up the thread firing the event.
+ *
+ * Events fired asynchronously are dispatched in the order in which they were fired,
+ * one event at a time.  The {@link AbstractEventService#preFire preFire} and
+ * {@link AbstractEventService#postFire postFire} hooks run on the dispatching side,
+ * not on the firing thread.
+ *
+ * @param <Event> The root event type dispatched by this Event Service.
+ *
+ * @version 1.0
+ */
+public interface IAsyncEventService< Event extends IEvent > extends IEventService< Event > {
+
+    /**
+     * How an asynchronously fired event is handed to the executor.
+     */
+    enum Dispatch {
+        /**
+         * The whole event is dispatched by a single task, exactly as {@link IEventService#fire}
+         * would dispatch it: listeners are invoked one after another, and cancellation stops
+         * any remaining listeners.
+         */
+        EVENT,
+
+        /**
+         * Each listener is invoked by a separate task, so the listeners for one event may
+         * run concurrently.  Since the listeners have all been started by then, cancelling
+         * the event doesn't stop the other listeners, but the event is still reported as
+         * cancelled.  The next event is not dispatched until all listeners have returned.
+         */
+        LISTENER
+    }
+
+    /**
+     * Queue an event to be fired to all registered listeners.
+     *
+     * @param event The event object to fire
+     *
+     * @return A future which completes with {@code true} if the event is handled and not
+     *          canceled, or completes exceptionally if a listener throws an exception.
+     */
+    CompletableFuture< Boolean > fireAsync( Event event );
+}
@@ -0,0 +1,37 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.List;
+
+/**
+ * A Listener which can handle a batch of events in a single call, when events are fired
+ * with {@link IEventService#fireAll}.  Events fired individually are still passed to
+ * {@link #handle}.
+ *
+ * @version 1.0
+ */
+public interface IBatchListener< Event extends IEvent > extends IListener< Event > {
+
+    /**
+     * Handle a batch of events.  Cancelling an event in the batch stops it from reaching
+     * any further listeners, as it would for {@link #handle}.
+     *
+     * @param events The events, in the order in which they were fired.  The list must
+     *               not be modified.
+     */
+    void handleAll( List< Event > events );
+}
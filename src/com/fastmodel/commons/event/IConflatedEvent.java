@@ -0,0 +1,37 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * An event of which only the latest value per key matters, such as a price or a
+ * progress update.  A {@link ConflatingEventService} replaces a pending event with a
+ * newer event with an equal conflation key, so that listeners only see the latest.
+ *
+ * @version 1.0
+ */
+public interface IConflatedEvent extends IEvent {
+
+    /**
+     * The conflation key is looked up by {@link Object#hashCode()} and
+     * {@link Object#equals(Object)}.  To avoid allocating per event, return a key object
+     * held by the event (such as an instrument or a task), rather than creating one, eg.
+     * by boxing a primitive.  Events of different classes should not share keys, since
+     * one would replace the other.
+     *
+     * @return The conflation key, or {@code null} if the event must not be conflated
+     */
+    Object getConflationKey();
+}
@@ -0,0 +1,40 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * Merges events fired within a batch scope (see {@link AbstractEventService#beginBatch()}),
+ * so that listeners receive one event in place of many, eg. a single range change in
+ * place of many cell changes.
+ *
+ * @param <Event> The root event type of the service
+ *
+ * @version 1.0
+ */
+public interface IEventMerger< Event extends IEvent > {
+
+    /**
+     * Merge a newly fired event into the event pending for this merger.  The merged
+     * event takes the pending event's place in the batch.  The merger may return either
+     * event, updated, or a new event object, which may be of another type.
+     *
+     * @param pending The event this merger last buffered or returned in the batch
+     * @param next    The newly fired event
+     * @return The merged event, or {@code null} if the events cannot be merged, in which
+     *          case the new event is buffered separately, and becomes the pending event
+     */
+    Event merge( Event pending, Event next );
+}
@@ -15,6 +15,10 @@
  */
 package com.fastmodel.commons.event;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
 /**
  * An Event Service handles dispatching of events of the specified type,
  * and provides the Event Sockets on which listeners can be registered.
@@ -35,6 +39,40 @@ public interface IEventService< Event extends IEvent > {
      */
     boolean fire( Event event );
 
+    /**
+     * Fire a batch of events to all registered listeners.  Implementations may amortize
+     * the cost of dispatching across the batch; listeners implementing {@link IBatchListener}
+     * may receive all of their events in a single call.  Each event is still subject to
+     * cancellation individually.  By default, the events are fired one at a time.
+     *
+     * @param events The event objects to fire, in order
+     *
+     * @return The result of firing each event: bit {@code i} is set if event {@code i}
+     *          is handled and not canceled
+     */
+    default BitSet fireAll( Collection< ? extends Event > events ) {
+        BitSet results = new BitSet( events.size() );
+        int i = 0;
+        for ( Event event : events ) {
+            results.set( i++, fire( event ));
+        }
+        return results;
+    }
+
+    /**
+     * Fire a batch of events to all registered listeners.
+     *
+     * @param events The event objects to fire, in order
+     *
+     * @return The result of firing each event: bit {@code i} is set if event {@code i}
+     *          is handled and not canceled
+     *
+     * @see #fireAll(java.util.Collection)
+     */
+    default BitSet fireAll( Event[] events ) {
+        return fireAll( Arrays.asList( events ));
+    }
+
     /**
      * Get the socket on which to register listeners for the service's
      * root event type.
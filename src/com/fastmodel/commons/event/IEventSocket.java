@@ -34,10 +34,75 @@ public interface IEventSocket< Event extends IEvent > {
     IListener< Event > bind( IListener<Event> listener );
 
     /**
-     * Remove a previously registered listener from this Event.
+     * Register a listener for this Event with a priority.  Listeners with a higher priority
+     * are invoked before those with a lower priority, and so may cancel an event before
+     * lower priority listeners receive it.  Listeners with the same priority are invoked
+     * in the order in which they were bound.  {@link #bind(IListener)} binds listeners
+     * with priority 0.  By default, only priority 0 is supported.
+     *
+     * @param listener The listener to register
+     * @param priority The priority of the listener
+     * @return The registered listener.
+     *
+     * @throws UnsupportedOperationException if the socket doesn't support priorities,
+     *          and the priority isn't 0
+     */
+    default IListener< Event > bind( IListener<Event> listener, int priority ) {
+        if ( priority != 0 ) throw new UnsupportedOperationException( "Listener priorities are not supported" );   // NON-NLS
+        return bind( listener );
+    }
+
+    /**
+     * Register a listener for this Event, holding it only through a weak reference.  The
+     * listener is unbound automatically once it has been garbage collected, so the caller
+     * must keep a strong reference to it for as long as it should be notified.  In
+     * particular, a lambda expression bound weakly and not referenced anywhere else may be
+     * collected at once.
+     *
+     * @param listener The listener to register
+     * @return The registered listener.
+     *
+     * @throws UnsupportedOperationException if the socket doesn't support weak binding,
+     *          which is the default
+     */
+    default IListener< Event > bindWeak( IListener<Event> listener ) {
+        throw new UnsupportedOperationException( "Weak binding is not supported" );   // NON-NLS
+    }
+
+    /**
+     * Remove a previously registered listener from this Event.  The listener is found by
+     * identity.
      *
      * @param listener The listener to remove
      * @return {@code true} if the specified listener was actually removed.
      */
     boolean unbind( IListener<Event> listener );
+
+    /**
+     * Register a listener for this Event, and return its subscription, which unbinds it
+     * when closed.  The services of this package unbind a subscription directly, so that
+     * unbinding many listeners takes time in proportion to their number.  By default, the
+     * subscription unbinds the listener through {@link #unbind}.
+     *
+     * @param listener The listener to register
+     * @return The subscription
+     */
+    default ISubscription subscribe( IListener<Event> listener ) {
+        return subscribe( listener, 0 );
+    }
+
+    /**
+     * Register a listener for this Event with a priority, and return its subscription.
+     *
+     * @param listener The listener to register
+     * @param priority The priority of the listener
+     * @return The subscription
+     *
+     * @see #bind(IListener, int)
+     * @see #subscribe(IListener)
+     */
+    default ISubscription subscribe( IListener<Event> listener, int priority ) {
+        bind( listener, priority );
+        return () -> unbind( listener );
+    }
 }
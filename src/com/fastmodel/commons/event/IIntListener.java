@@ -0,0 +1,30 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * A listener for the values fired by an {@link IntEventService}.
+ *
+ * @version 1.0
+ */
+public interface IIntListener {
+
+    /**
+     * @param value The fired value
+     * @return {@code false} to cancel the value, so that no further listeners receive it
+     */
+    boolean handle( int value );
+}
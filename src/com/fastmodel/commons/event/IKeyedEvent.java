@@ -0,0 +1,36 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * An event which is routed by key.  A {@link MultiEventService} dispatches keyed events
+ * only to the listeners bound with a matching key (see
+ * {@link IMultiEventService#getSocket(Class, Object)}), in addition to its unkeyed
+ * listeners, without visiting the listeners bound to other keys.
+ *
+ * @version 1.0
+ */
+public interface IKeyedEvent extends IEvent {
+
+    /**
+     * The routing key is looked up by {@link Object#hashCode()} and {@link Object#equals(Object)}.
+     * To avoid allocating per event, return a key object held by the event (such as an entity
+     * id), rather than creating one, eg. by boxing a primitive.
+     *
+     * @return The routing key, or {@code null} to dispatch to unkeyed listeners only
+     */
+    Object getRoutingKey();
+}
@@ -0,0 +1,33 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * Finds the {@link GeneratedBinder} of a listening class.  The {@code ListenerProcessor}
+ * generates one index in each binder, and registers it as a {@link java.util.ServiceLoader}
+ * provider.  Event services look a class up in the indexes visible to its class loader the
+ * first time an object of that class is bound.
+ *
+ * @version 1.0
+ */
+public interface IListenerIndex {
+
+    /**
+     * @param className The binary name of a listening class
+     * @return A new binder for the class, or {@code null} if this index has none
+     */
+    GeneratedBinder< ? > getBinder( String className );
+}
@@ -39,4 +39,41 @@ public interface IMultiEventService< Event extends IEvent > extends IEventServic
      * @return The requested socket
      */
     <SocketEvent extends Event> IEventSocket< SocketEvent > getSocket( Class< SocketEvent > eventClass );
+
+    /**
+     * Get a socket for registering handlers for a specific event type and routing key.
+     * Listeners bound to this socket are only invoked for {@link IKeyedEvent}s of the
+     * event type whose routing key equals the specified key.  At equal priority, they are
+     * invoked after the listeners bound without a key.
+     *
+     * @param eventClass The target event type's class object
+     * @param key        The routing key
+     * @param <SocketEvent> The target event type
+     *
+     * @return The requested socket
+     *
+     * @throws UnsupportedOperationException if the service doesn't route by key, which
+     *          is the default
+     */
+    default <SocketEvent extends Event> IEventSocket< SocketEvent > getSocket( Class< SocketEvent > eventClass, Object key ) {
+        throw new UnsupportedOperationException( "Keyed sockets are not supported" );   // NON-NLS
+    }
+
+    /**
+     * Get a socket for registering handlers which are only invoked for events matching a
+     * filter on one of their attributes.  Listeners bound to this socket are invoked for
+     * events of the filter's event type which match the filter.  At equal priority, they
+     * are invoked after the listeners bound without a filter.
+     *
+     * @param filter The filter, whose event type is the target event type
+     * @param <SocketEvent> The target event type
+     *
+     * @return The requested socket
+     *
+     * @throws UnsupportedOperationException if the service doesn't filter listeners, which
+     *          is the default
+     */
+    default <SocketEvent extends Event> IEventSocket< SocketEvent > getSocket( EventFilter< SocketEvent > filter ) {
+        throw new UnsupportedOperationException( "Filtered sockets are not supported" );   // NON-NLS
+    }
 }
@@ -0,0 +1,38 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * Receives the events which overflow a queued event service under
+ * {@link OverflowPolicy#SPILL}, eg. to write them to secondary storage or to forward
+ * them to another service.
+ *
+ * @param <Event> The event type the sink accepts
+ *
+ * @version 1.0
+ */
+public interface IOverflowSink< Event extends IEvent > {
+
+    /**
+     * Take over an event which could not be queued.  Called on the firing thread.  The
+     * sink takes over the service's reference to an {@link AbstractRecyclableEvent}, and
+     * must release it once done with it.  If the sink throws an exception, it hasn't taken
+     * over the event: the service releases it, and the fire fails with the exception.
+     *
+     * @param event The event object
+     */
+    void spill( Event event );
+}
@@ -0,0 +1,36 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * An event which names the partition in which it is ordered.  A
+ * {@link PartitionedEventService} dispatches all events with equal partition keys on the
+ * same lane, in the order in which they were fired, while events with other keys may be
+ * dispatched in parallel on other lanes.
+ *
+ * @version 1.0
+ */
+public interface IPartitionedEvent extends IEvent {
+
+    /**
+     * The partition key is assigned to a lane by {@link Object#hashCode()}, so events with
+     * equal keys must have keys with equal hash codes, as usual.  Typically, the key is the
+     * identity of the entity the event is about, such as an account or an order id.
+     *
+     * @return The partition key, or {@code null} to dispatch on the first lane
+     */
+    Object getPartitionKey();
+}
@@ -0,0 +1,67 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * The socket of a primitive event service, such as an {@link IntEventService}, on which
+ * listeners for its values are registered and de-registered.  It follows the contract
+ * of {@link IEventSocket}.
+ *
+ * @param <Listener> The listener type, eg. {@link IIntListener}
+ *
+ * @version 1.0
+ */
+public interface IPrimitiveEventSocket< Listener > {
+    /**
+     * Register a listener
+     *
+     * @param listener The listener to register
+     * @return The registered listener.
+     */
+    Listener bind( Listener listener );
+
+    /**
+     * Register a listener with a priority.  Listeners with a higher priority are invoked
+     * first; listeners with the same priority are invoked in the order in which they
+     * were bound.
+     *
+     * @param listener The listener to register
+     * @param priority The priority of the listener
+     * @return The registered listener.
+     *
+     * @see IEventSocket#bind(IListener, int)
+     */
+    Listener bind( Listener listener, int priority );
+
+    /**
+     * Register a listener, holding it only through a weak reference.
+     *
+     * @param listener The listener to register
+     * @return The registered listener.
+     *
+     * @see IEventSocket#bindWeak(IListener)
+     */
+    Listener bindWeak( Listener listener );
+
+    /**
+     * Remove a previously registered listener.  The listener is found by identity.
+     *
+
+     * @param listener The listener to remove
+     * @return {@code true} if the specified listener was actually removed.
+     */
+    boolean unbind( Listener listener );
+}
@@ -0,0 +1,26 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * A Listener which only reads the event objects passed to it.  When an {@link IClonableEvent}
+ * is fired, all read-only listeners share a single clone, rather than each being passed a
+ * clone of its own.  Read-only listeners must neither modify nor cancel the event.
+ *
+ * @version 1.0
+ */
+public interface IReadOnlyListener< Event extends IEvent > extends IListener< Event > {
+}
@@ -0,0 +1,35 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * A cloneable event whose clones can be reused for later events of the same type.  When
+ * clone recycling is enabled on an event service (see
+ * {@link AbstractEventService#setRecycleClones(boolean)}), clones of such events are returned to
+ * a per-type free list once the listener has returned, and are reinitialized with
+ * {@link #copyFrom} rather than allocating a new clone.
+ *
+ * @version 1.0
+ */
+public interface IReusableEvent extends IClonableEvent {
+
+    /**
+     * Reinitialize this object as a clone of another event of the same type.
+     *
+     * @param original The event object being fired
+     */
+    void copyFrom( IReusableEvent original );
+}
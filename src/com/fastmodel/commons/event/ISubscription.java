@@ -0,0 +1,35 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * The registration of a listener with an event socket, returned by
+ * {@link IEventSocket#subscribe(IListener)}.  Closing the subscription unbinds the
+ * listener directly, without searching the socket's listeners, so a subscription may be
+ * held in a try-with-resources statement, or collected to unbind many listeners at once.
+ *
+ * @version 1.0
+ */
+public interface ISubscription extends AutoCloseable {
+
+    /**
+     * Unbind the listener.  Closing a subscription more than once, or after its listener
+     * has been unbound otherwise, has no effect.  A fire which is already under way skips
+     * the listener from then on.
+     */
+    @Override
+    void close();
+}
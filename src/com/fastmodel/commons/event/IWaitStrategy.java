@@ -0,0 +1,34 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * Determines how the consumer of a {@link RingBufferEventService} waits while no
+ * published events are available.  {@link WaitStrategy} provides the usual choices.
+ *
+ * @version 1.0
+ */
+public interface IWaitStrategy {
+
+    /**
+     * Wait briefly for events to be published.  This method is called repeatedly for as
+     * long as no events are available, so it should return after a short time.
+     *
+     * @param idleCount The number of consecutive calls, starting from 1, since events were
+     *                  last available
+     */
+    void idle( int idleCount );
+}
@@ -0,0 +1,100 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * An index of a service's listener entries by the identity of their listeners, so that
+ * {@code unbind(listener)} finds a listener's entry without scanning all of them.  The
+ * index is keyed by identity hash code, and compares the entries' targets by identity,
+ * so it never keeps a weakly bound listener alive.
+ *
+ * The index is only used to bind and unbind listeners, never to fire events, so it
+ * simply locks.
+ *
+ * @version 1.0
+ */
+final class IdentityIndex {
+
+    private static final ListenerEntry[] NONE = new ListenerEntry[ 0 ];
+
+    /** The entries for each identity hash code, either a single entry or an array */
+    private final Map< Integer, Object > entries = new HashMap<Integer, Object>();
+
+    synchronized void add( ListenerEntry entry ) {
+        Integer identity = entry.getIdentity();
+        Object bucket = entries.get( identity );
+        if ( bucket == null ) {
+            entries.put( identity, entry );
+        } else {
+            ListenerEntry[] existing = bucket instanceof ListenerEntry ? new ListenerEntry[] { (ListenerEntry) bucket } : (ListenerEntry[]) bucket;
+            ListenerEntry[] updated = Arrays.copyOf( existing, existing.length + 1 );
+            updated[ existing.length ] = entry;
+            entries.put( identity, updated );
+        }
+    }
+
+    /**
+     * Unbind the first entry bound for a listener which is accepted by a predicate.
+     *
+     * @param listener The listener
+     * @param accepts  Checks that the entry was bound through the unbinding socket
+     * @return The entry, which has been removed from the index, or {@code null} if the
+     *          listener isn't bound through the socket
+     */
+    synchronized ListenerEntry unbind( Object listener, Predicate< ListenerEntry > accepts ) {
+        if ( listener == null ) return null;
+
+        for ( ListenerEntry entry : bucket( System.identityHashCode( listener ))) {
+            if ( entry.getTarget() == listener && accepts.test( entry ) && entry.unbind() ) {
+                remove( entry );
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    synchronized void remove( ListenerEntry entry ) {
+        Integer identity = entry.getIdentity();
+        Object bucket = entries.get( identity );
+        if ( bucket == entry ) {
+            entries.remove( identity );
+        } else if ( bucket instanceof ListenerEntry[] ) {
+            ListenerEntry[] existing = (ListenerEntry[]) bucket;
+            int index = Arrays.asList( existing ).indexOf( entry );
+            if ( index < 0 ) return;
+
+            if ( existing.length == 2 ) {
+                entries.put( identity, existing[ 1 - index ] );
+            } else {
+                ListenerEntry[] updated = new ListenerEntry[ existing.length - 1 ];
+                System.arraycopy( existing, 0, updated, 0, index );
+                System.arraycopy( existing, index + 1, updated, index, updated.length - index );
+                entries.put( identity, updated );
+            }
+        }
+    }
+
+    private ListenerEntry[] bucket( int identity ) {
+        Object bucket = entries.get( identity );
+        if ( bucket == null ) return NONE;
+        return bucket instanceof ListenerEntry ? new ListenerEntry[] { (ListenerEntry) bucket } : (ListenerEntry[]) bucket;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds, with a fixed set of logarithmic buckets:
+ * bucket {@code i} counts the durations {@code d} for which {@code 2^(i-1) <= d < 2^i},
+ * and bucket 0 counts durations of zero.  Each bucket is a {@link LongAdder}, so
+ * concurrent recording doesn't contend, and the histogram can be read at any time.
+ *
+ * @version 1.0
+ */
+public final class LatencyHistogram {
+
+    /** The number of buckets, enough for any non-negative {@code long} duration */
+    public static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[ BUCKETS ];
+    private final LongAdder totalNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for ( int i = 0; i < BUCKETS; i++ ) buckets[ i ] = new LongAdder();
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos The duration, in nanoseconds
+     */
+    void record( long nanos ) {
+        if ( nanos < 0 ) nanos = 0;
+        buckets[ Math.min( BUCKETS - 1, 64 - Long.numberOfLeadingZeros( nanos )) ].increment();
+        totalNanos.add( nanos );
+    }
+
+    /**
+     * @return The number of durations in each bucket
+     */
+    public long[] getCounts() {
+        long[] counts = new long[ BUCKETS ];
+        for ( int i = 0; i < BUCKETS; i++ ) counts[ i ] = buckets[ i ].sum();
+        return counts;
+    }
+
+    /**
+     * @return The number of recorded durations
+     */
+    public long getCount() {
+        long count = 0;
+        for ( LongAdder bucket : buckets ) count += bucket.sum();
+        return count;
+    }
+
+    /**
+     * @return The sum of the recorded durations, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Estimate a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The upper bound of the bucket containing the percentile, in nanoseconds,
+     *          or 0 if no durations have been recorded
+     */
+    public long getPercentile( double percentile ) {
+        if ( percentile < 0 || percentile > 100 ) {
+            throw new IllegalArgumentException( "Percentile out of range: " + percentile );   // NON-NLS
+        }
+
+        long[] counts = getCounts();
+        long total = 0;
+        for ( long count : counts ) total += count;
+        if ( total == 0 ) return 0;
+
+        long rank = (long) Math.ceil( total * percentile / 100 );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            seen += counts[ i ];
+            if ( seen >= rank && counts[ i ] > 0 ) return upperBound( i );
+        }
+        return upperBound( BUCKETS - 1 );
+    }
+
+    /**
+     * @param bucket A bucket index
+     * @return The largest duration counted by the bucket, in nanoseconds
+     */
+    public static long upperBound( int bucket ) {
+        return bucket == 0 ? 0 : bucket == BUCKETS - 1 ? Long.MAX_VALUE : ( 1L << bucket ) - 1;
+    }
+}
@@ -23,6 +23,10 @@ import java.lang.annotation.*;
  * parameter, whose type determines the event type for which it will be registered.  The
  * return type doesn't matter, and any return value will be ignored.
  *
+ * Listener methods are invoked through method handles rather than reflection.  Unchecked
+ * exceptions thrown by a listener method propagate unchanged to the caller of
+ * {@link IEventService#fire}; checked exceptions are wrapped in a {@link RuntimeException}.
+ *
  * @author Ben Schreiber
  * @version 1.0
  */
@@ -37,4 +41,29 @@ public @interface Listener {
      */
     public boolean strict() default true;
     public Class on() default Object.class;
+
+    /**
+     * A read-only listener promises not to modify the event objects passed to it, so that
+     * all read-only listeners for an {@link IClonableEvent} can share a single clone.
+     *
+     * @see IReadOnlyListener
+     */
+    public boolean readOnly() default false;
+
+    /**
+     * Listeners with a higher priority are invoked first.
+     *
+     * @see IEventSocket#bind(IListener, int)
+     */
+    public int priority() default 0;
+
+    /**
+     * The name of a static field holding the {@link EventFilter} for this listener, declared
+     * by the listening object's class, one of its superclasses, or an enclosing class.  A filtered listener
+     * is only invoked for events matching the filter, which the event service evaluates
+     * through an index rather than by invoking the listener.
+     *
+     * @see EventAttribute
+     */
+    public String filter() default "";
 }
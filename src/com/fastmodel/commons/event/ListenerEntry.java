@@ -0,0 +1,194 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A listener as registered with an event service, together with the state the
+ * service needs to dispatch to it.
+ *
+ * Unbinding only marks the entry, so that a dispatch which is already in progress
+ * with a snapshot of the service's listeners skips it from then on.
+ *
+ * A weak entry only holds its target through a weak reference.  Once the target has
+ * been collected, the reference is enqueued on the service's {@link ReclaimQueue},
+ * which unbinds the entry.
+ *
+ * An entry is also the {@link ISubscription} for its listener.  Closing it unbinds it,
+ * and then lets the service remove it through {@link #closed()}.
+ *
+ * @version 1.0
+ */
+class ListenerEntry implements ISubscription {
+    private static final AtomicIntegerFieldUpdater< ListenerEntry > UNBOUND =
+            AtomicIntegerFieldUpdater.newUpdater( ListenerEntry.class, "unbound" );
+
+    /** The target of a strong entry */
+    private final Object target;
+    /** The reference to the target of a weak entry */
+    private final Reference reference;
+    private final boolean readOnly;
+    private final int priority;
+    /** The identity hash code of the target, by which the entry may be indexed */
+    private final int identity;
+    private volatile int unbound;
+
+    /**
+     * @param target   The registered listener, or the object on which {@link #invoke} (if
+     *                 overridden) invokes the listener
+     * @param readOnly {@code true} if the listener doesn't modify the event objects passed to it
+     * @param priority The dispatch priority of the listener
+     * @param queue    The queue on which to reclaim the entry once its target has been
+     *                 collected, or {@code null} to hold the target strongly
+     */
+    ListenerEntry( Object target, boolean readOnly, int priority, ReclaimQueue queue ) {
+        this.target = queue == null ? target : null;
+        this.reference = queue == null ? null : new Reference( target, queue, this );
+        this.readOnly = readOnly;
+        this.priority = priority;
+        this.identity = System.identityHashCode( target );
+    }
+
+    /**
+     * Find where to insert a listener into a list of listeners in dispatch order: after all
+     * listeners with the same or a higher priority, and before those with a lower priority.
+     *
+     * @param entries  Listeners sorted by descending priority
+     * @param priority The priority of the listener being inserted
+     * @return The insertion index
+     */
+    static int insertionPoint( List< ? extends ListenerEntry > entries, int priority ) {
+        int low = 0, high = entries.size();
+        while ( low < high ) {
+            int mid = ( low + high ) >>> 1;
+            if ( entries.get( mid ).getPriority() >= priority ) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Pass a prepared event object to the listener.
+     *
+     * @param event The event object
+     */
+    void invoke( IEvent event ) {
+        @SuppressWarnings( "unchecked" )
+        IListener< IEvent > listener = (IListener< IEvent >) getTarget();
+        if ( listener != null ) listener.handle( event );
+    }
+
+    /**
+     * @return The registered listener, or {@code null} if it has been collected, or if
+     *          the entry doesn't dispatch to an {@link IListener}
+     */
+    IListener< ? > getListener() {
+        return (IListener< ? >) getTarget();
+    }
+
+    /**
+     * @return The target of the entry, or {@code null} if it has been collected
+     */
+    final Object getTarget() {
+        return reference == null ? target : reference.get();
+    }
+
+    /**
+     * @return The annotated method which the entry invokes, or {@code null} if it
+     *          dispatches to an {@link IListener}
+     */
+    Method getMethod() {
+        return null;
+    }
+
+    /**
+     * @return The event type the listener was bound to, or {@code null} if it was bound
+     *          to the root event type of a service which only has one
+     */
+    Class<?> getSocketType() {
+        return null;
+    }
+
+    boolean isWeak() {
+        return reference != null;
+    }
+
+    /**
+     * @return {@code true} if the listener may share its event object with other read-only
+     *          listeners, rather than being passed its own clone of an {@link IClonableEvent}
+     */
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Mark this listener as unbound, so that it will no longer be invoked.
+     *
+     * @return {@code true} if the listener was bound until now
+     */
+    boolean unbind() {
+        return UNBOUND.compareAndSet( this, 0, 1 );
+    }
+
+    boolean isUnbound() {
+        return unbound != 0;
+    }
+
+    /**
+     * Unbind the listener, if it is still bound.
+     */
+    @Override
+    public final void close() {
+        if ( unbind() ) closed();
+    }
+
+    /**
+     * Called once the entry has been unbound by closing it, so that the service can
+     * remove it.
+     */
+    void closed() {
+    }
+
+    int getIdentity() {
+        return identity;
+    }
+
+    /**
+     * Called once a weak entry has been unbound because its target was collected.
+     */
+    void reclaimed() {
+    }
+
+    /**
+     * A weak reference to the target of an entry, which remembers the entry to unbind
+     */
+    static final class Reference extends WeakReference< Object > {
+        final ListenerEntry entry;
+
+        private Reference( Object target, ReclaimQueue queue, ListenerEntry entry ) {
+            super( target, queue );
+            this.entry = entry;
+        }
+    }
+}
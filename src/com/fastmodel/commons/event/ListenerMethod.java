@@ -0,0 +1,374 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The resolved metadata for a method annotated with {@link Listener}.
+ *
+ * The listener methods of a class are resolved once, the first time an object of that
+ * class is bound, and cached with the class itself through a {@link ClassValue}, so the
+ * cache never keeps a class loader alive on its own.  The outcome of checking those
+ * methods against the root event type of a service is cached alongside them, keyed
+ * weakly by the root type, which may belong to another class loader.
+ *
+ * If a {@link GeneratedBinder} was generated for the class at compile time, the methods
+ * are resolved from it, and invoked through it, without reflection.  Otherwise, they are
+ * found by reflection, and invoked through method handles.
+ *
+ * @version 1.0
+ */
+final class ListenerMethod {
+
+    private static final ListenerMethod[] NONE = new ListenerMethod[ 0 ];
+    private static final Resolution[] NO_RESOLUTIONS = new Resolution[ 0 ];
+
+    private static final ClassValue< ListenerClass > LISTENER_CLASSES = new ClassValue< ListenerClass >() {
+        @Override
+        protected ListenerClass computeValue( Class<?> type ) {
+            return new ListenerClass( type );
+        }
+    };
+
+    private volatile Method     method;
+    private final Class<?>      eventType;
+    private final boolean       strict;
+    private final boolean       readOnly;
+    private final int           priority;
+    private final EventFilter<?> filter;
+    private final MethodHandle  handle;
+    /** The generated binder which invokes the method, or {@code null} to invoke it through {@link #handle} */
+    private final GeneratedBinder< Object > binder;
+    private final int           index;
+    private final GeneratedBinder.Descriptor descriptor;
+
+    private ListenerMethod( Method method, Class<?> eventType, Listener annotation, EventFilter<?> filter ) {
+        this.method = method;
+        this.eventType = eventType;
+        this.strict = annotation.strict();
+        this.readOnly = annotation.readOnly();
+        this.priority = annotation.priority();
+        this.filter = filter;
+        this.handle = listenerHandle( method );
+        this.binder = null;
+        this.index = -1;
+        this.descriptor = null;
+    }
+
+    private ListenerMethod( GeneratedBinder< Object > binder, int index, EventFilter<?> filter ) {
+        this.descriptor = binder.getListeners().get( index );
+        this.eventType = descriptor.eventType;
+        this.strict = descriptor.strict;
+        this.readOnly = descriptor.readOnly;
+        this.priority = descriptor.priority;
+        this.filter = filter;
+        this.handle = null;
+        this.binder = binder;
+        this.index = index;
+    }
+
+    /**
+     * Get the listener methods of a class which can be bound to a service.
+     *
+     * @param listenerClass The class of the object being bound
+     * @param rootType      The root event type of the service
+     * @return The bindable listener methods, in declaration order
+     *
+     * @throws ListenerTypeMismatch if a strict listener method cannot be bound to the service
+     */
+    static ListenerMethod[] bindable( Class<?> listenerClass, Class<?> rootType ) {
+        return LISTENER_CLASSES.get( listenerClass ).bindable( rootType );
+    }
+
+    /**
+     * Invoke the listener method.
+     *
+     * @param target The object on which the listener method is declared
+     * @param event  The event object
+     */
+    void invoke( Object target, IEvent event ) {
+        try {
+            if ( binder != null ) binder.invoke( target, index, event );
+            else handle.invokeExact( target, event );
+        } catch ( RuntimeException | Error e ) {
+            throw e;
+        } catch ( Throwable e ) {
+            throw new RuntimeException( "Exception in Event Handler", e );
+        }
+    }
+
+    /**
+     * @return The listener method.  For a method invoked through a generated binder, it is
+     *          only looked up by reflection when first requested, eg. by metrics.
+     */
+    Method getMethod() {
+        Method method = this.method;
+        if ( method == null ) {
+            try {
+                method = binder.getListenerClass().getMethod( descriptor.name, descriptor.parameterType );
+            } catch ( NoSuchMethodException e ) {
+                throw new IllegalStateException( e );
+            }
+            this.method = method;
+        }
+        return method;
+    }
+
+    /**
+     * @return The event type the method listens for: either {@link Listener#on()}, or the
+     *          method's parameter type
+     */
+    Class<?> getEventType() {
+        return eventType;
+    }
+
+    /**
+     * @return {@code true} if the method doesn't modify the events passed to it
+     */
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return The dispatch priority declared by {@link Listener#priority()}
+     */
+    int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return The filter named by {@link Listener#filter()}, or {@code null} if the method
+     *          isn't filtered
+     */
+    EventFilter<?> getFilter() {
+        return filter;
+    }
+
+    /**
+     * Resolve the filter named by a listener method's annotation.
+     *
+     * @param type      The class of the listening object
+     * @param method    The name of the listener method
+     * @param eventType The event type the method listens for
+     * @param name      The name of the static field holding the filter
+     * @return The filter
+     *
+     * @throws IllegalArgumentException if the field doesn't exist, or doesn't hold a filter
+     *                                  which can apply to the method's events
+     */
+    private static EventFilter<?> listenerFilter( Class<?> type, String method, Class<?> eventType, String name ) {
+        for ( Class<?> declaring : filterScope( type )) {
+            Field field;
+            try {
+                field = declaring.getDeclaredField( name );
+            } catch ( NoSuchFieldException e ) {
+                continue;
+            }
+            if ( !Modifier.isStatic( field.getModifiers() )) break;
+
+            Object filter;
+            try {
+                field.setAccessible( true );
+                filter = field.get( null );
+            } catch ( IllegalAccessException e ) {
+                throw new IllegalStateException( e );
+            }
+            if ( !( filter instanceof EventFilter )) break;
+
+            Class<?> filterType = ( (EventFilter<?>) filter ).getEventClass();
+            if ( !filterType.isAssignableFrom( eventType ) && !eventType.isAssignableFrom( filterType )) {
+                throw new IllegalArgumentException( String.format( "Filter %s of listener %s applies to unrelated event type %s",   // NON-NLS
+                                                                   name, method, filterType.getName() ));
+            }
+            return (EventFilter<?>) filter;
+        }
+        throw new IllegalArgumentException( String.format( "Listener %s names filter %s, which is not a static EventFilter field of %s",   // NON-NLS
+                                                           method, name, type.getName() ));
+    }
+
+    /**
+     * @return The classes in which to look for a listener filter, in order: the class
+     *          of the listening object and its superclasses, then its enclosing classes
+     */
+    private static List< Class<?> > filterScope( Class<?> type ) {
+        List< Class<?> > scope = new ArrayList<Class<?>>();
+        for ( Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass() ) {
+            for ( Class<?> declaring = enclosing; declaring != null; declaring = declaring.getSuperclass() ) {
+                scope.add( declaring );
+            }
+        }
+        return scope;
+    }
+
+    /**
+     * Get a direct method handle for an annotated listener method, adapted to take the
+     * listening object and the event object, and to discard any return value.  A static
+     * method ignores the listening object.
+     *
+     * @param method The listener method
+     * @return A method handle of type {@code (Object, IEvent)void}
+     */
+    private static MethodHandle listenerHandle( Method method ) {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().unreflect( method );
+        } catch ( IllegalAccessException e ) {
+            // A public method declared by a non-public class, eg. an anonymous listener class
+            method.setAccessible( true );
+            try {
+                handle = MethodHandles.lookup().unreflect( method );
+            } catch ( IllegalAccessException e2 ) {
+                throw new IllegalStateException( e2 );
+            }
+        }
+        if ( Modifier.isStatic( method.getModifiers() )) {
+            // Accept and ignore the target, so that every listener is invoked alike
+            handle = MethodHandles.dropArguments( handle, 0, Object.class );
+        }
+        return handle.asType( MethodType.methodType( void.class, Object.class, IEvent.class ));
+    }
+
+    /**
+     * The listener methods declared by one class.
+     */
+    private static final class ListenerClass {
+        private final ListenerMethod[] methods;
+        /** The first method with an invalid signature, which can never be bound */
+        private final Method invalid;
+        /**
+         * The bindable methods or the mismatching method, by root event type; replaced on
+         * change, so that it is read without locking.  The results never refer to the root
+         * type, so it is only held weakly.
+         */
+        private volatile Resolution[] bindable = NO_RESOLUTIONS;
+
+        private ListenerClass( Class<?> type ) {
+            List< ListenerMethod > methods = new ArrayList<ListenerMethod>();
+            Method invalid = null;
+
+            @SuppressWarnings( "unchecked" )
+            GeneratedBinder< Object > binder = (GeneratedBinder< Object >) GeneratedBinder.forClass( type );
+
+            if ( binder != null ) {
+                // The processor has already rejected invalid methods
+                List< GeneratedBinder.Descriptor > listeners = binder.getListeners();
+                for ( int i = 0; i < listeners.size(); i++ ) {
+                    GeneratedBinder.Descriptor listener = listeners.get( i );
+                    EventFilter<?> filter = listener.filter != null || listener.filterName == null ? listener.filter
+                            : listenerFilter( type, listener.name, listener.eventType, listener.filterName );
+                    methods.add( new ListenerMethod( binder, i, filter ));
+                }
+                this.methods = methods.toArray( new ListenerMethod[ methods.size() ] );
+                this.invalid = null;
+                return;
+            }
+
+            for ( Method method : type.getMethods() ) {
+                Listener annotation = method.getAnnotation( Listener.class );
+                if ( annotation != null ) {
+                    if ( method.getParameterTypes().length != 1 ) {
+                        invalid = method;
+                        break;
+                    }
+                    Class<?> eventType = annotation.on();
+                    if ( eventType.equals( Object.class )) {
+                        eventType = method.getParameterTypes()[0];
+                    }
+                    EventFilter<?> filter = annotation.filter().isEmpty() ? null
+                            : listenerFilter( type, method.getName(), eventType, annotation.filter() );
+                    methods.add( new ListenerMethod( method, eventType, annotation, filter ));
+                }
+            }
+
+            this.methods = methods.toArray( new ListenerMethod[ methods.size() ] );
+            this.invalid = invalid;
+        }
+
+        /**
+         * Get the methods which can be bound to a service with the specified root type.  The
+         * result is either the bindable methods, or the method which causes a mismatch.
+         */
+        private ListenerMethod[] bindable( Class<?> rootType ) {
+            Object result = find( rootType );
+            if ( result == null ) {
+                synchronized ( this ) {
+                    result = find( rootType );
+                    if ( result == null ) {
+                        result = resolve( rootType );
+                        List< Resolution > updated = new ArrayList<Resolution>( bindable.length + 1 );
+                        for ( Resolution resolution : bindable ) {
+                            if ( resolution.get() != null ) updated.add( resolution );
+                        }
+                        updated.add( new Resolution( rootType, result ));
+                        bindable = updated.toArray( new Resolution[ updated.size() ] );
+                    }
+                }
+            }
+
+            if ( result instanceof Method ) {
+                throw new ListenerTypeMismatch( (Method) result, rootType );
+            }
+            return (ListenerMethod[]) result;
+        }
+
+        /**
+         * @return The cached result for the root type, or {@code null} if it wasn't resolved yet
+         */
+        private Object find( Class<?> rootType ) {
+            for ( Resolution resolution : bindable ) {
+                if ( resolution.get() == rootType ) return resolution.result;
+            }
+            return null;
+        }
+
+        private Object resolve( Class<?> rootType ) {
+            List< ListenerMethod > bindable = new ArrayList<ListenerMethod>( methods.length );
+            for ( ListenerMethod method : methods ) {
+                if ( rootType.isAssignableFrom( method.eventType )) {
+                    bindable.add( method );
+                } else if ( method.strict ) {
+                    return method.getMethod();
+                }
+            }
+            if ( invalid != null ) {
+                return invalid;
+            }
+
+            return bindable.isEmpty() ? NONE : bindable.toArray( new ListenerMethod[ bindable.size() ] );
+        }
+    }
+
+    /**
+     * The bindable methods or the mismatching method for a root event type
+     */
+    private static final class Resolution extends WeakReference< Class<?> > {
+        final Object result;
+
+        Resolution( Class<?> rootType, Object result ) {
+            super( rootType );
+            this.result = result;
+        }
+    }
+}
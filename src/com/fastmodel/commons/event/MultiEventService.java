@@ -16,13 +16,31 @@
 package com.fastmodel.commons.event;
 
 import java.lang.reflect.Method;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
 
 /**
  * An event service capable of dispatching events of different types to the
- * appropriate listeners.  Maintains a single list of registered listeners.
+ * appropriate listeners.  Maintains a single list of registered listeners, together
+ * with a dispatch index which caches the listeners applicable to each concrete event
+ * class that has been fired.  The index is discarded whenever listeners are bound
+ * or unbound.
+ * <p/>
+ * The service is thread-safe.  The listener list and its dispatch index form an
+ * immutable snapshot which is replaced (copy-on-write) whenever listeners are bound,
+ * so firing never locks and never observes a partially updated list.  Unbinding a
+ * listener only marks it as unbound, so that it is skipped from then on; unbound
+ * listeners are purged from the snapshot in bulk, once they make up half of it.  Sockets
+ * find the listener to unbind through an identity index, and a subscription unbinds its
+ * listener directly, so unbinding many listeners takes time in proportion to their number.
  * <p/>
  * Event listeners can be bound to this service in any combination of the
  * following three ways:<ul>
@@ -54,9 +72,48 @@ import java.util.List;
  */
 public class MultiEventService< Event extends IEvent > extends AbstractEventService< Event > implements IMultiEventService< Event > {
 
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< MultiEventService, MultiEventService.Registry > REGISTRY =
+            AtomicReferenceFieldUpdater.newUpdater( MultiEventService.class, MultiEventService.Registry.class, "registry" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< MultiEventService, IEventSocket > DEFAULT_SOCKET =
+            AtomicReferenceFieldUpdater.newUpdater( MultiEventService.class, IEventSocket.class, "defaultSocket" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< MultiEventService, ConcurrentMap > TYPED_SOCKETS =
+            AtomicReferenceFieldUpdater.newUpdater( MultiEventService.class, ConcurrentMap.class, "typedSockets" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< MultiEventService, MultiEventService.AnnotationBinder > BINDER =
+            AtomicReferenceFieldUpdater.newUpdater( MultiEventService.class, MultiEventService.AnnotationBinder.class, "binder" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< MultiEventService, MultiEventService.AnnotationBinder > WEAK_BINDER =
+            AtomicReferenceFieldUpdater.newUpdater( MultiEventService.class, MultiEventService.AnnotationBinder.class, "weakBinder" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicIntegerFieldUpdater< MultiEventService.Registry > UNBOUND_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater( MultiEventService.Registry.class, "unboundCount" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< MultiEventService, ConcurrentMap > KEY_INDEX =
+            AtomicReferenceFieldUpdater.newUpdater( MultiEventService.class, ConcurrentMap.class, "keyIndex" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< MultiEventService, FilterIndex > FILTER_INDEX =
+            AtomicReferenceFieldUpdater.newUpdater( MultiEventService.class, FilterIndex.class, "filterIndex" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< MultiEventService, IdentityIndex > IDENTITIES =
+            AtomicReferenceFieldUpdater.newUpdater( MultiEventService.class, IdentityIndex.class, "identities" );
+
     private Class< Event > eventClass;
-    private List< ListenerWrapper< ? extends Event >> listeners;
-    private IEventSocket< Event > defaultSocket;
+    private volatile Registry registry;
+    private volatile IEventSocket< Event > defaultSocket;
+    /** The sockets for derived event types, by type.  Created when first needed. */
+    private volatile ConcurrentMap< Class<?>, IEventSocket< ? >> typedSockets;
+    private volatile AnnotationBinder binder, weakBinder;
+    /** Index of the listeners bound by the annotation binder, guarded by {@code this} */
+    private Map< Object, ListenerWrapper< ? extends Event >[] > boundObjects;
+    /** The listeners bound with a routing key, by key.  Created when first needed. */
+    private volatile ConcurrentMap< Object, KeyBucket > keyIndex;
+    /** The listeners bound with a filter, indexed by attribute.  Created when first needed. */
+    private volatile FilterIndex filterIndex;
+    /** The listeners bound through sockets, by identity.  Created when first needed. */
+    private volatile IdentityIndex identities;
 
     public MultiEventService( Class<Event> eventClass ) {
         this.eventClass = eventClass;
@@ -65,41 +122,79 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
     /**
      * Get a socket for registering handlers for a specific event type.
      * This method is used to ensure type-safe event registration and dispatching
-     * in spite of Erasure.
+     * in spite of Erasure.  Sockets are created once per event type, so getting a socket
+     * again doesn't allocate.
      *
      * @param socketEventClass  The target event type's class object
      * @param <SocketEvent>     The target event type
      * @return The requested socket
      */
+    @SuppressWarnings( "unchecked" )
     public <SocketEvent extends Event> IEventSocket<SocketEvent> getSocket( Class<SocketEvent> socketEventClass ) {
-        // Implementation note: I am going with the assumption that it is overall cheaper to
-        // use temporary helper objects than to reduce the number of helper object allocations
-        // at the expense of tying up memory with cached helpers.
-        return new TypedEventSocket<SocketEvent>( socketEventClass );
+        if ( socketEventClass == eventClass ) {
+            return (IEventSocket< SocketEvent >) getSocket();
+        }
+
+        ConcurrentMap< Class<?>, IEventSocket< ? >> sockets = typedSockets;
+        if ( sockets == null ) {
+            TYPED_SOCKETS.compareAndSet( this, null, new ConcurrentHashMap<Class<?>, IEventSocket<?>>() );
+            sockets = typedSockets;
+        }
+        IEventSocket< ? > socket = sockets.get( socketEventClass );
+        if ( socket == null ) {
+            IEventSocket< ? > created = new TypedEventSocket<SocketEvent>( socketEventClass );
+            socket = sockets.putIfAbsent( socketEventClass, created );
+            if ( socket == null ) socket = created;
+        }
+        return (IEventSocket< SocketEvent >) socket;
     }
 
     /**
-     * Fire an event to all registered listeners.
+     * Get a socket for registering handlers for a specific event type and routing key.
+     * Keyed listeners are kept apart from the other listeners, in a hash index by key, so
+     * that firing an event doesn't visit the listeners bound to other keys.
      *
-     * @param event The event object to fire
-     * @return {@code true} if the event is handled and not canceled
+     * @param socketEventClass  The target event type's class object
+     * @param key               The routing key
+     * @param <SocketEvent>     The target event type
+     * @return The requested socket
      */
-    public boolean fire( Event event ) {
-        boolean handled = preFire( event );
+    public <SocketEvent extends Event> IEventSocket<SocketEvent> getSocket( Class<SocketEvent> socketEventClass, Object key ) {
+        if ( key == null ) throw new NullPointerException();
+        return new KeyedEventSocket<SocketEvent>( socketEventClass, key );
+    }
 
-        if ( isCanceled( event )) return false;
+    /**
+     * Get a socket for registering handlers which are only invoked for events matching a
+     * filter.  Filtered listeners are indexed by the filtered attribute, so that firing an
+     * event doesn't visit the listeners whose filters it doesn't match.
+     *
+     * @param filter        The filter, which also determines the target event type
+     * @param <SocketEvent> The target event type
+     * @return The requested socket
+     */
+    public <SocketEvent extends Event> IEventSocket<SocketEvent> getSocket( EventFilter<SocketEvent> filter ) {
+        if ( filter == null ) throw new NullPointerException();
+        return new FilteredEventSocket<SocketEvent>( filter );
+    }
 
-        for ( ListenerWrapper< ? extends Event > listener : getListeners() ) {
-            Event ev = listener.handle( event );
-            if ( ev != null ) {
-                if ( isCanceled( ev )) return false;
-                handled = true;
-            }
-        }
+    @Override
+    ListenerEntry[] getDispatchList( Event event ) {
+        reclaim();
 
-        handled = postFire( event, handled );
+        Registry current = registry;
+        ListenerEntry[] unkeyed = current == null ? NO_LISTENERS : current.getDispatchList( event.getClass() );
 
-        return handled;
+        ListenerEntry[] listeners = unkeyed;
+        ConcurrentMap< Object, KeyBucket > index = keyIndex;
+        if ( index != null && event instanceof IKeyedEvent ) {
+            Object key = ( (IKeyedEvent) event ).getRoutingKey();
+            KeyBucket bucket = key == null ? null : index.get( key );
+            if ( bucket != null ) listeners = bucket.getDispatchList( event.getClass(), current, unkeyed );
+        }
+
+        FilterIndex filters = filterIndex;
+        return filters == null ? listeners : filters.getDispatchList( event, listeners );
     }
 
     /**
@@ -111,7 +206,7 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
      */
     public IEventSocket<Event> getSocket() {
         if ( defaultSocket == null ) {
-            defaultSocket = new TypedEventSocket<Event>( eventClass );
+            DEFAULT_SOCKET.compareAndSet( this, null, new TypedEventSocket<Event>( eventClass ));
         }
         return defaultSocket;
     }
@@ -123,27 +218,323 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
      * @return An event binder
      */
     public IEventBinder getBinder() {
-        return new AnnotationBinder();
+        if ( binder == null ) {
+            BINDER.compareAndSet( this, null, new AnnotationBinder( false ));
+        }
+        return binder;
+    }
+
+    /**
+     * Get a binder which binds the event listeners declared with the {@link Listener}
+     * annotation while holding the bound object only through a weak reference.  Once the
+     * object has been garbage collected, its listeners are unbound automatically.
+     *
+     * @return An event binder
+     */
+    public IEventBinder getWeakBinder() {
+        if ( weakBinder == null ) {
+            WEAK_BINDER.compareAndSet( this, null, new AnnotationBinder( true ));
+        }
+        return weakBinder;
+    }
+
+    /**
+     * Publish a new registry snapshot with the specified listeners inserted, in order, after
+     * any listeners of the same priority.  Listeners which have been unbound are purged from
+     * the new snapshot.
+     *
+     * @param added The listeners to add
+     */
+    private void addListeners( List< ListenerWrapper< ? extends Event >> added ) {
+        reclaim();
+        Registry current, updated;
+        do {
+            current = registry;
+            List< ListenerWrapper< ? extends Event >> listeners = liveListeners( current, added.size() );
+            for ( ListenerWrapper< ? extends Event > wrapper : added ) {
+                listeners.add( ListenerEntry.insertionPoint( listeners, wrapper.getPriority() ), wrapper );
+            }
+            updated = new Registry( listeners.toArray( newWrapperArray( listeners.size() )));
+        } while ( !REGISTRY.compareAndSet( this, current, updated ));
+    }
+
+    /**
+     * Record that listeners have been unbound, and purge them from the registry once
+     * they make up half of the registered listeners.
+     *
+     * @param count The number of listeners which have just been unbound
+     */
+    private void listenersUnbound( int count ) {
+        Registry current = registry;
+        if ( current == null ) return;
+
+        int unbound = UNBOUND_COUNT.addAndGet( current, count );
+        if ( unbound * 2 < current.listeners.length ) return;
+
+        Registry updated;
+        do {
+            List< ListenerWrapper< ? extends Event >> listeners = liveListeners( current, 0 );
+            updated = listeners.isEmpty() ? null : new Registry( listeners.toArray( newWrapperArray( listeners.size() )));
+        } while ( !REGISTRY.compareAndSet( this, current, updated ) && ( current = registry ) != null );
+    }
+
+    /**
+     * @return A new list of the listeners in the registry which are still bound
+     */
+    private List< ListenerWrapper< ? extends Event >> liveListeners( Registry registry, int extra ) {
+        if ( registry == null ) return new ArrayList<ListenerWrapper<? extends Event>>( extra );
+
+        List< ListenerWrapper< ? extends Event >> live = new ArrayList<ListenerWrapper<? extends Event>>( registry.listeners.length + extra );
+        for ( ListenerWrapper< ? extends Event > wrapper : registry.listeners ) {
+            if ( !wrapper.isUnbound() ) live.add( wrapper );
+        }
+        return live;
     }
 
     /**
-     * Don't instantiate the listeners until needed.
+     * Add a keyed listener to the key index.
+     */
+    private void addKeyed( final KeyedListenerWrapper< ? extends Event > wrapper ) {
+        reclaim();
+
+        ConcurrentMap< Object, KeyBucket > index = keyIndex;
+        if ( index == null ) {
+            KEY_INDEX.compareAndSet( this, null, new ConcurrentHashMap<Object, KeyBucket>() );
+            index = keyIndex;
+        }
+        index.compute( wrapper.key, ( key, bucket ) -> bucket == null ? new KeyBucket( wrapper ) : bucket.with( wrapper ));
+    }
+
+    /**
+     * Remove an unbound keyed listener from the key index.
+     */
+    private void removeKeyed( final KeyedListenerWrapper< ? extends Event > wrapper ) {
+        ConcurrentMap< Object, KeyBucket > index = keyIndex;
+        if ( index != null ) {
+            index.computeIfPresent( wrapper.key, ( key, bucket ) -> bucket.without( wrapper ));
+        }
+    }
+
+    /**
+     * Add a filtered listener to the filter index.
+     */
+    private void addFiltered( ListenerWrapper< ? extends Event > wrapper, EventFilter< ? > filter ) {
+        reclaim();
+
+        FilterIndex current;
+        do {
+            current = filterIndex;
+        } while ( !FILTER_INDEX.compareAndSet( this, current, FilterIndex.with( current, wrapper, filter )));
+    }
+
+    /**
+     * Remove an unbound filtered listener from the filter index.
+     */
+    private void removeFiltered( ListenerWrapper< ? extends Event > wrapper ) {
+        FilterIndex current, updated;
+        do {
+            current = filterIndex;
+            if ( current == null ) return;
+            updated = current.without( wrapper );
+        } while ( updated != current && !FILTER_INDEX.compareAndSet( this, current, updated ));
+    }
+
+    private IdentityIndex getIdentities() {
+        IdentityIndex index = identities;
+        if ( index == null ) {
+            IDENTITIES.compareAndSet( this, null, new IdentityIndex() );
+            index = identities;
+        }
+        return index;
+    }
+
+    /**
+     * Bind a listener through a socket, indexing it by identity.
      *
-     * @return The listeners
+     * @return The listener's entry
      */
-    private List<ListenerWrapper<? extends Event>> getListeners() {
-        if ( listeners == null ) {
-            listeners = new LinkedList<ListenerWrapper<? extends Event>>();
+    private < Wrapper extends ListenerWrapper< ? extends Event >> Wrapper addListener( Wrapper wrapper ) {
+        getIdentities().add( wrapper );
+        if ( wrapper instanceof MultiEventService.KeyedListenerWrapper ) {
+            addKeyed( (KeyedListenerWrapper< ? extends Event >) wrapper );
+        } else if ( wrapper instanceof MultiEventService.FilteredListenerWrapper ) {
+            addFiltered( wrapper, ( (FilteredListenerWrapper< ? >) wrapper ).filter );
+        } else {
+            List< ListenerWrapper< ? extends Event >> added = new ArrayList<ListenerWrapper<? extends Event>>( 1 );
+            added.add( wrapper );
+            addListeners( added );
+        }
+        return wrapper;
+    }
+
+    /**
+     * Unbind a listener bound through a socket.
+     *
+     * @param listener The listener
+     * @param accepts  Checks that the entry was bound through the unbinding socket
+     * @return {@code true} if the listener was unbound
+     */
+    @SuppressWarnings( "unchecked" )
+    private boolean removeListener( IListener< ? > listener, Predicate< ListenerEntry > accepts ) {
+        IdentityIndex index = identities;
+        ListenerEntry entry = index == null ? null : index.unbind( listener, accepts );
+        if ( entry == null ) return false;
+
+        ( (ListenerWrapper< ? extends Event >) entry ).removed();
+        return true;
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private ListenerWrapper< ? extends Event >[] newWrapperArray( int length ) {
+        return new MultiEventService.ListenerWrapper[ length ];
+    }
+
+    /**
+     * An immutable snapshot of the registered listeners, in dispatch order, together with
+     * the dispatch index derived from them.  A service with no listeners has no registry.
+     */
+    private final class Registry {
+        private final ListenerWrapper< ? extends Event >[] listeners;
+        volatile int unboundCount;
+        private final ConcurrentMap< Class<?>, ListenerWrapper< ? extends Event >[] > dispatchIndex =
+                new ConcurrentHashMap<Class<?>, ListenerWrapper<? extends Event>[]>();
+
+        private Registry( ListenerWrapper< ? extends Event >[] listeners ) {
+            this.listeners = listeners;
+        }
+
+        /**
+         * Get the listeners which should be invoked for events of the specified concrete
+         * class, in dispatch order.  The list is resolved against the full type
+         * hierarchy of the event class the first time that class is fired, and cached
+         * for the lifetime of this snapshot.
+         *
+         * @param firedClass The concrete class of the fired event object
+         * @return The applicable listeners
+         */
+        private ListenerWrapper< ? extends Event >[] getDispatchList( Class<?> firedClass ) {
+            ListenerWrapper< ? extends Event >[] dispatchList = dispatchIndex.get( firedClass );
+            if ( dispatchList == null ) {
+                List< ListenerWrapper< ? extends Event >> applicable = new ArrayList<ListenerWrapper<? extends Event>>();
+                for ( ListenerWrapper< ? extends Event > wrapper : listeners ) {
+                    if ( wrapper.accepts( firedClass )) {
+                        applicable.add( wrapper );
+                    }
+                }
+                dispatchList = applicable.toArray( newWrapperArray( applicable.size() ));
+
+                ListenerWrapper< ? extends Event >[] raced = dispatchIndex.putIfAbsent( firedClass, dispatchList );
+                if ( raced != null ) dispatchList = raced;
+            }
+            return dispatchList;
+        }
+    }
+
+    /**
+     * The listeners bound to one routing key, in dispatch order.  A bucket is replaced
+     * whenever a listener is bound to or unbound from its key.
+     */
+    private final class KeyBucket {
+        private final ListenerWrapper< ? extends Event >[] listeners;
+        /** The dispatch list most recently built from this bucket */
+        private volatile KeyedDispatch cache;
+
+        private KeyBucket( ListenerWrapper< ? extends Event > wrapper ) {
+            this.listeners = newWrapperArray( 1 );
+            this.listeners[ 0 ] = wrapper;
+        }
+
+        private KeyBucket( ListenerWrapper< ? extends Event >[] listeners ) {
+            this.listeners = listeners;
+        }
+
+        private KeyBucket with( ListenerWrapper< ? extends Event > wrapper ) {
+            int index = ListenerEntry.insertionPoint( Arrays.asList( listeners ), wrapper.getPriority() );
+            ListenerWrapper< ? extends Event >[] updated = newWrapperArray( listeners.length + 1 );
+            System.arraycopy( listeners, 0, updated, 0, index );
+            updated[ index ] = wrapper;
+            System.arraycopy( listeners, index, updated, index + 1, listeners.length - index );
+            return new KeyBucket( updated );
+        }
+
+        /**
+         * @return The bucket without the specified listener, or {@code null} if it would be empty
+         */
+        private KeyBucket without( ListenerWrapper< ? extends Event > wrapper ) {
+            int index = Arrays.asList( listeners ).indexOf( wrapper );
+            if ( index < 0 ) return this;
+            if ( listeners.length == 1 ) return null;
+
+            ListenerWrapper< ? extends Event >[] updated = newWrapperArray( listeners.length - 1 );
+            System.arraycopy( listeners, 0, updated, 0, index );
+            System.arraycopy( listeners, index + 1, updated, index, updated.length - index );
+            return new KeyBucket( updated );
+        }
+
+        /**
+         * Get the listeners for a keyed event: the unkeyed listeners for the event class, merged
+         * with the keyed listeners which accept the class.  The result is cached until the next
+         * event of another class, or until the unkeyed listeners change.
+         *
+         * @param firedClass The concrete class of the fired event object
+         * @param registry   The current registry snapshot, or {@code null}
+         * @param unkeyed    The unkeyed listeners for the class
+         * @return The listeners, in dispatch order
+         */
+        private ListenerEntry[] getDispatchList( Class<?> firedClass, Registry registry, ListenerEntry[] unkeyed ) {
+            KeyedDispatch cached = cache;
+            if ( cached != null && cached.firedClass == firedClass && cached.registry == registry ) {
+                return cached.listeners;
+            }
+
+            List< ListenerEntry > keyed = new ArrayList<ListenerEntry>( listeners.length );
+            for ( ListenerWrapper< ? extends Event > wrapper : listeners ) {
+                if ( wrapper.accepts( firedClass )) keyed.add( wrapper );
+            }
+
+            ListenerEntry[] merged = unkeyed;
+            if ( !keyed.isEmpty() ) {
+                // At equal priority, unkeyed listeners come first
+                merged = new ListenerEntry[ unkeyed.length + keyed.size() ];
+                int i = 0, j = 0;
+                for ( int k = 0; k < merged.length; k++ ) {
+                    if ( j == keyed.size() || ( i < unkeyed.length && unkeyed[ i ].getPriority() >= keyed.get( j ).getPriority() )) {
+                        merged[ k ] = unkeyed[ i++ ];
+                    } else {
+                        merged[ k ] = keyed.get( j++ );
+                    }
+                }
+            }
+
+            cache = new KeyedDispatch( firedClass, registry, merged );
+            return merged;
+        }
+    }
+
+    /**
+     * A dispatch list built from a key bucket, and what it was built from.
+     */
+    private static final class KeyedDispatch {
+        private final Class<?> firedClass;
+        private final Object registry;
+        private final ListenerEntry[] listeners;
+
+        private KeyedDispatch( Class<?> firedClass, Object registry, ListenerEntry[] listeners ) {
+            this.firedClass = firedClass;
+            this.registry = registry;
+            this.listeners = listeners;
         }
-        return listeners;
     }
 
     /**
      * Encapsulation of listener binding by annotation
      */
     public class AnnotationBinder implements IEventBinder {
+        private final boolean weak;
 
-        private AnnotationBinder() {}
+        private AnnotationBinder( boolean weak ) {
+            this.weak = weak;
+        }
 
         /**
          * Add all methods annotated with {@link Listener} as listeners in this service.
@@ -155,38 +546,33 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
          * @throws ListenerTypeMismatch if the listener method cannot be bound
          *                      to any event type that can be fired by this service
          */
-        public <ObjectType> ObjectType bindAll( final ObjectType object ) {
-
-            Class cl = object.getClass();
-
-            for ( final Method method : cl.getMethods() ) {
-                Listener annotation = method.getAnnotation( Listener.class );
-                if ( annotation != null ) {
-                    if ( method.getParameterTypes().length != 1 ) {
-                        throw new ListenerTypeMismatch( method, eventClass );
-                    }
-                    Class<?> type = annotation.on();
-                    if ( type.equals( Object.class )) {
-                        type = method.getParameterTypes()[0];
-                    }
-                    if ( !eventClass.isAssignableFrom( type )) {
-                        if ( annotation.strict() )
-                            throw new ListenerTypeMismatch( method, eventClass );
-                        else
-                            continue;
-                    }
+        public <ObjectType> ObjectType bindAll( ObjectType object ) {
+            ListenerMethod[] methods = ListenerMethod.bindable( object.getClass(), eventClass );
+            if ( methods.length == 0 ) return object;
+
+            ReclaimQueue queue = weak ? getReclaimQueue() : null;
+            List< ListenerWrapper< ? extends Event >> bound = new ArrayList<ListenerWrapper<? extends Event>>( methods.length );
+            List< ListenerWrapper< ? extends Event >> unfiltered = new ArrayList<ListenerWrapper<? extends Event>>( methods.length );
+            for ( ListenerMethod method : methods ) {
+                @SuppressWarnings( "unchecked" )
+                ObjectListenerWrapper< Event > wrapper = new ObjectListenerWrapper<Event>( (Class<Event>) method.getEventType(), method, object, queue );
+                bound.add( wrapper );
+                if ( method.getFilter() != null ) addFiltered( wrapper, method.getFilter() );
+                else unfiltered.add( wrapper );
+            }
+            if ( !unfiltered.isEmpty() ) addListeners( unfiltered );
+            // Weakly bound objects aren't indexed, since the index would keep them alive
+            if ( weak ) return object;
 
-                    //noinspection unchecked
-                    getListeners().add( new ObjectListenerWrapper<Event>( (Class<Event>) type, new IListener<Event>() {
-                        public void handle( Event event ) {
-                            try {
-                                method.invoke( object, event );
-                            } catch ( Exception e ) {
-                                throw new RuntimeException( "Exception in Event Handler", e );
-                            }
-                        }
-                    }, object ));
+            synchronized ( MultiEventService.this ) {
+                if ( boundObjects == null ) {
+                    boundObjects = new IdentityHashMap<Object, ListenerWrapper<? extends Event>[]>();
+                }
+                ListenerWrapper< ? extends Event >[] previous = boundObjects.get( object );
+                if ( previous != null ) {
+                    bound.addAll( 0, Arrays.asList( previous ));
                 }
+                boundObjects.put( object, bound.toArray( newWrapperArray( bound.size() )));
             }
 
             return object;
@@ -200,18 +586,60 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
          * @return {@code true} if any listeners were removed.
          */
         public boolean unbindAll( Object object ) {
-            boolean removed = false;
-            for ( Iterator<ListenerWrapper<? extends Event>> iterator = getListeners().iterator(); iterator.hasNext(); ) {
-                ListenerWrapper<? extends Event> wrapper = iterator.next();
-
-                //noinspection unchecked
-                if ( wrapper instanceof ObjectListenerWrapper && ((ObjectListenerWrapper) wrapper).getObject() == object ) {
-                    iterator.remove();
-                    removed = true;
+            if ( weak ) return unbindWeak( object );
+
+            ListenerWrapper< ? extends Event >[] bound;
+            synchronized ( MultiEventService.this ) {
+                bound = boundObjects == null ? null : boundObjects.remove( object );
+            }
+            if ( bound == null ) return false;
+
+            int count = 0, filtered = 0;
+            for ( ListenerWrapper< ? extends Event > wrapper : bound ) {
+                if ( !wrapper.unbind() ) continue;
+                if ( wrapper.isFiltered() ) {
+                    removeFiltered( wrapper );
+                    filtered++;
+                } else {
+                    count++;
                 }
             }
+            listenersUnbound( count );
 
-            return removed;
+            return count + filtered > 0;
+        }
+
+        /**
+         * Unbind the listeners of a weakly bound object, which must be found by scanning
+         * the registered listeners.
+         */
+        private boolean unbindWeak( Object object ) {
+            Registry current = registry;
+            int count = 0;
+            if ( current != null ) {
+                for ( ListenerWrapper< ? extends Event > wrapper : current.listeners ) {
+                    if ( isBoundWeakly( wrapper, object ) && wrapper.unbind() ) count++;
+                }
+                listenersUnbound( count );
+            }
+
+            FilterIndex filters = filterIndex;
+            if ( filters != null ) {
+                for ( ListenerEntry entry : filters.entries() ) {
+                    if ( isBoundWeakly( entry, object ) && entry.unbind() ) {
+                        @SuppressWarnings( "unchecked" )
+                        ListenerWrapper< ? extends Event > filtered = (ListenerWrapper< ? extends Event >) entry;
+                        removeFiltered( filtered );
+                        count++;
+                    }
+                }
+            }
+
+            return count > 0;
+        }
+
+        private boolean isBoundWeakly( ListenerEntry entry, Object object ) {
+            return entry instanceof ObjectListenerWrapper && entry.isWeak() && entry.getTarget() == object;
         }
     }
 
@@ -220,41 +648,62 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
      *
      * @param <ListenerEvent> The specific event type the listener is registered for
      */
-    private class ListenerWrapper< ListenerEvent extends Event > {
+    private class ListenerWrapper< ListenerEvent extends Event > extends ListenerEntry {
         private Class< ListenerEvent > eventClass;
-        private IListener< ListenerEvent > listener;
 
-        private ListenerWrapper( Class<ListenerEvent> eventClass, IListener< ListenerEvent> listener ) {
+        private ListenerWrapper( Class<ListenerEvent> eventClass, Object target, boolean readOnly, int priority, ReclaimQueue queue ) {
+            super( target, readOnly, priority, queue );
             this.eventClass = eventClass;
-            this.listener = listener;
         }
 
         /**
-         * Handle the event, if it's compatible with this listener.  This method takes
-         * care of event object preparation, in addition to invoking the listener.
+         * Check whether events of the specified class should be passed to this listener.
          *
-         * @param event The original event object
-         *
-         * @return The event object that was passed to the listener, or {@code null} if the
-         *          listener wasn't invoked.
+         * @param firedClass The concrete class of a fired event object
+         * @return {@code true} if the listener is registered for a supertype of the class
          */
-        private Event handle( Event event ) {
-            if ( eventClass.isAssignableFrom( event.getClass() )) {
-                //noinspection unchecked
-                ListenerEvent ev = (ListenerEvent) prepEvent( event );
-                if ( ev != null ) listener.handle( ev );
-                return ev;
-            }
-
-            return null;
+        private boolean accepts( Class<?> firedClass ) {
+            return eventClass.isAssignableFrom( firedClass );
         }
 
         private Class<ListenerEvent> getEventClass() {
             return eventClass;
         }
 
-        private IListener< ListenerEvent> getListener() {
-            return listener;
+        @Override
+        Class<?> getSocketType() {
+            return eventClass;
+        }
+
+        /**
+         * @return {@code true} if the listener is kept in the filter index rather than
+         *          in the registry
+         */
+        boolean isFiltered() {
+            return false;
+        }
+
+        /**
+         * Remove the listener from the service, once it has been unbound through its socket
+         * or subscription, or reclaimed.  Listeners in the registry are counted towards its
+         * purge; keyed and filtered listeners are removed from their index instead.
+         */
+        void removed() {
+            listenersUnbound( 1 );
+        }
+
+        @Override
+        void closed() {
+            IdentityIndex index = identities;
+            if ( index != null ) index.remove( this );
+            removed();
+        }
+
+        @Override
+        void reclaimed() {
+            IdentityIndex index = identities;
+            if ( index != null ) index.remove( this );
+            removed();
         }
     }
 
@@ -265,15 +714,83 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
      * @param <ListenerEvent> The specific event type the listener is registered for
      */
     private class ObjectListenerWrapper< ListenerEvent extends Event > extends ListenerWrapper< ListenerEvent > {
-        private Object object;
+        private ListenerMethod method;
 
-        private ObjectListenerWrapper( Class<ListenerEvent> listenerEventClass, IListener<ListenerEvent> listener, Object object ) {
-            super( listenerEventClass, listener );
-            this.object = object;
+        private ObjectListenerWrapper( Class<ListenerEvent> listenerEventClass, ListenerMethod method, Object object, ReclaimQueue queue ) {
+            super( listenerEventClass, object, method.isReadOnly(), method.getPriority(), queue );
+            this.method = method;
         }
 
-        private Object getObject() {
-            return object;
+        @Override
+        void invoke( IEvent event ) {
+            Object object = getTarget();
+            if ( object != null ) method.invoke( object, event );
+        }
+
+        @Override
+        IListener< ? > getListener() {
+            return null;
+        }
+
+        @Override
+        Method getMethod() {
+            return method.getMethod();
+        }
+
+        @Override
+        boolean isFiltered() {
+            return method.getFilter() != null;
+        }
+
+        @Override
+        void reclaimed() {
+            if ( isFiltered() ) removeFiltered( this );
+            else listenersUnbound( 1 );
+        }
+    }
+
+    /**
+     * A listener bound with a routing key.
+     *
+     * @param <ListenerEvent> The specific event type the listener is registered for
+     */
+    private class KeyedListenerWrapper< ListenerEvent extends Event > extends ListenerWrapper< ListenerEvent > {
+        private final Object key;
+
+        private KeyedListenerWrapper( Class<ListenerEvent> eventClass, Object key, IListener< ListenerEvent > listener,
+                                      int priority, ReclaimQueue queue ) {
+            super( eventClass, listener, listener instanceof IReadOnlyListener, priority, queue );
+            this.key = key;
+        }
+
+        @Override
+        void removed() {
+            removeKeyed( this );
+        }
+    }
+
+    /**
+     * A listener bound with a filter.
+     *
+     * @param <ListenerEvent> The specific event type the listener is registered for
+     */
+    private class FilteredListenerWrapper< ListenerEvent extends Event > extends ListenerWrapper< ListenerEvent > {
+        private final EventFilter< ListenerEvent > filter;
+
+        private FilteredListenerWrapper( EventFilter< ListenerEvent > filter, IListener< ListenerEvent > listener,
+                                         int priority, ReclaimQueue queue ) {
+            super( filter.getEventClass(), listener, listener instanceof IReadOnlyListener, priority, queue );
+            this.filter = filter;
+        }
+
+        @Override
+        boolean isFiltered() {
+            return true;
+        }
+
+        @Override
+        void removed() {
+            removeFiltered( this );
         }
     }
 
@@ -298,10 +815,44 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
          *         statement that registers it.
          */
         public IListener<SocketEvent> bind( IListener<SocketEvent> listener ) {
-            getListeners().add( new ListenerWrapper<SocketEvent>( socketEventClass, listener ));
+            return bind( listener, 0 );
+        }
+
+        /**
+         * Register a listener for this Event with a priority.
+         *
+         * @param listener The listener to register
+         * @param priority The priority of the listener
+         * @return The registered listener.
+         */
+        public IListener<SocketEvent> bind( IListener<SocketEvent> listener, int priority ) {
+            subscribe( listener, priority );
             return listener;
         }
 
+        /**
+         * Register a listener for this Event, holding it only through a weak reference.
+         *
+         * @param listener The listener to register
+         * @return The registered listener.
+         */
+        public IListener<SocketEvent> bindWeak( IListener<SocketEvent> listener ) {
+            addListener( new ListenerWrapper<SocketEvent>( socketEventClass, listener, listener instanceof IReadOnlyListener, 0, getReclaimQueue() ));
+            return listener;
+        }
+
+        /**
+         * Register a listener for this Event with a priority, and return its subscription.
+         *
+         * @param listener The listener to register
+         * @param priority The priority of the listener
+         * @return The subscription
+         */
+        @Override
+        public ISubscription subscribe( IListener<SocketEvent> listener, int priority ) {
+            return addListener( new ListenerWrapper<SocketEvent>( socketEventClass, listener, listener instanceof IReadOnlyListener, priority, null ));
+        }
+
         /**
          * Remove a previously registered listener from this Event.  The listener must have
          * been registered against this very same socket type.
@@ -310,15 +861,111 @@ public class MultiEventService< Event extends IEvent > extends AbstractEventServ
          * @return {@code true} if the specified listener was actually removed.
          */
         public boolean unbind( IListener<SocketEvent> listener ) {
-            for ( Iterator<ListenerWrapper<? extends Event>> iterator = getListeners().iterator(); iterator.hasNext(); ) {
-                ListenerWrapper<? extends Event> wrapper = iterator.next();
-                if ( wrapper.getListener() == listener && wrapper.getEventClass().equals( socketEventClass )) {
-                    iterator.remove();
-                    return true;
-                }
-            }
+            return removeListener( listener, this::accepts );
+        }
 
-            return false;
+        @SuppressWarnings( "unchecked" )
+        private boolean accepts( ListenerEntry entry ) {
+            return entry.getClass() == ListenerWrapper.class && ( (ListenerWrapper< ? >) entry ).getEventClass().equals( socketEventClass );
+        }
+    }
+
+    /**
+     * The EventSocket implementation for listeners bound with a routing key.
+     *
+     * @param <SocketEvent> The specific bound event type for the socket
+     */
+    private class KeyedEventSocket< SocketEvent extends Event > implements IEventSocket< SocketEvent > {
+        private final Class< SocketEvent > socketEventClass;
+        private final Object key;
+
+        private KeyedEventSocket( Class<SocketEvent> socketEventClass, Object key ) {
+            this.socketEventClass = socketEventClass;
+            this.key = key;
+        }
+
+        public IListener<SocketEvent> bind( IListener<SocketEvent> listener ) {
+            return bind( listener, 0 );
+        }
+
+        public IListener<SocketEvent> bind( IListener<SocketEvent> listener, int priority ) {
+            subscribe( listener, priority );
+            return listener;
+        }
+
+        public IListener<SocketEvent> bindWeak( IListener<SocketEvent> listener ) {
+            addListener( new KeyedListenerWrapper<SocketEvent>( socketEventClass, key, listener, 0, getReclaimQueue() ));
+            return listener;
+        }
+
+        @Override
+        public ISubscription subscribe( IListener<SocketEvent> listener, int priority ) {
+            return addListener( new KeyedListenerWrapper<SocketEvent>( socketEventClass, key, listener, priority, null ));
+        }
+
+        /**
+         * Remove a previously registered listener from this Event.  The listener must have
+         * been registered against a socket for the same type and key.
+         *
+         * @param listener The listener to remove
+         * @return {@code true} if the specified listener was actually removed.
+         */
+        public boolean unbind( IListener<SocketEvent> listener ) {
+            return removeListener( listener, this::accepts );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private boolean accepts( ListenerEntry entry ) {
+            return entry instanceof MultiEventService.KeyedListenerWrapper && ( (KeyedListenerWrapper< ? >) entry ).key.equals( key )
+                    && entry.getSocketType().equals( socketEventClass );
+        }
+    }
+
+    /**
+     * The EventSocket implementation for listeners bound with a filter.
+     *
+     * @param <SocketEvent> The specific bound event type for the socket
+     */
+    private class FilteredEventSocket< SocketEvent extends Event > implements IEventSocket< SocketEvent > {
+        private final EventFilter< SocketEvent > filter;
+
+        private FilteredEventSocket( EventFilter< SocketEvent > filter ) {
+            this.filter = filter;
+        }
+
+        public IListener<SocketEvent> bind( IListener<SocketEvent> listener ) {
+            return bind( listener, 0 );
+        }
+
+        public IListener<SocketEvent> bind( IListener<SocketEvent> listener, int priority ) {
+            subscribe( listener, priority );
+            return listener;
+        }
+
+        public IListener<SocketEvent> bindWeak( IListener<SocketEvent> listener ) {
+            addListener( new FilteredListenerWrapper<SocketEvent>( filter, listener, 0, getReclaimQueue() ));
+            return listener;
+        }
+
+        @Override
+        public ISubscription subscribe( IListener<SocketEvent> listener, int priority ) {
+            return addListener( new FilteredListenerWrapper<SocketEvent>( filter, listener, priority, null ));
+        }
+
+        /**
+         * Remove a previously registered listener from this Event.  The listener must have
+         * been registered against a socket for an equal filter.
+         *
+         * @param listener The listener to remove
+         * @return {@code true} if the specified listener was actually removed.
+         */
+        public boolean unbind( IListener<SocketEvent> listener ) {
+            return removeListener( listener, this::accepts );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private boolean accepts( ListenerEntry entry ) {
+            return entry instanceof MultiEventService.FilteredListenerWrapper && ( (FilteredListenerWrapper< ? >) entry ).filter.equals( filter );
         }
     }
 }
@@ -0,0 +1,41 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * How an event service dispatches an event fired by one of its own listeners, on the
+ * same thread, while it is dispatching another event.
+ *
+ * @see AbstractEventService#setNestedDispatch
+ *
+ * @version 1.0
+ */
+public enum NestedDispatch {
+    /**
+     * The nested event is dispatched at once, before the outer event reaches its remaining
+     * listeners.  This is the default.  Each level of a cascade of events adds to the
+     * stack, so deep cascades may overflow it.
+     */
+    RECURSE,
+
+    /**
+     * The nested event is queued, and dispatched once the outermost event has reached all
+     * of its listeners.  A cascade of events is dispatched breadth-first, on a stack of
+     * constant depth.  Firing a nested event returns {@code false}, since it hasn't been
+     * dispatched yet.
+     */
+    QUEUE
+}
@@ -0,0 +1,91 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often the queue of a queued event service overflowed, by the
+ * {@link OverflowPolicy} which was applied, and records the highest number of events
+ * queued at once.  The counters can be read at any time while events are being fired.
+ *
+ * @version 1.0
+ */
+public final class OverflowCounters {
+
+    private final LongAdder[] applied = new LongAdder[ OverflowPolicy.values().length ];
+    private final AtomicLong highWaterMark = new AtomicLong();
+
+    OverflowCounters() {
+        for ( int i = 0; i < applied.length; i++ ) {
+            applied[ i ] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param policy An overflow policy
+     * @return The number of events which found the queue full and were subject to the
+     *          policy: waited for room, were dropped or caused another to be dropped,
+     *          failed, or were spilled.
+     */
+    public long getCount( OverflowPolicy policy ) {
+        return applied[ policy.ordinal() ].sum();
+    }
+
+    /**
+     * @return The number of events which found the queue full, under any policy
+     */
+    public long getOverflowCount() {
+        long count = 0;
+        for ( LongAdder adder : applied ) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return The highest number of events queued at once, since the service was
+     *          created or the mark was last reset.  For a service with several queues,
+     *          such as a {@link PartitionedEventService}, the highest for any one queue.
+     */
+    public long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Reset the high-water mark, eg. at the start of a reporting interval.
+     *
+     * @return The high-water mark before it was reset
+     */
+    public long resetHighWaterMark() {
+        return highWaterMark.getAndSet( 0 );
+    }
+
+    void applied( OverflowPolicy policy ) {
+        applied[ policy.ordinal() ].increment();
+    }
+
+    /**
+     * Record the number of events in a queue.
+     */
+    void depth( long depth ) {
+        long mark;
+        while ( depth > ( mark = highWaterMark.get() ) && !highWaterMark.compareAndSet( mark, depth )) {
+            // Retry
+        }
+    }
+}
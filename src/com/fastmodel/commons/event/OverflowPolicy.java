@@ -0,0 +1,57 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+/**
+ * What a queued event service does with an event fired while its queue is full.
+ *
+ * @see OverflowSettings
+ *
+ * @version 1.0
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The firing thread waits until the queue has room.  No events are lost, but a slow
+     * listener slows down the producers.
+     */
+    BLOCK,
+
+    /**
+     * The new event is discarded.  Its future, if any, completes with an
+     * {@link EventQueueOverflow}.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest queued event is discarded to make room for the new event.  The discarded
+     * event's future, if any, completes with an {@link EventQueueOverflow}.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Firing the event fails with an {@link EventQueueOverflow}, so that the caller can
+     * decide what to do.
+     */
+    FAIL,
+
+    /**
+     * The new event is passed to the {@link IOverflowSink} of the service's settings,
+     * on the firing thread, instead of being queued.  Its future, if any, completes
+     * with {@code false}.
+     */
+    SPILL
+}
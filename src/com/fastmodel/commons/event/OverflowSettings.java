@@ -0,0 +1,153 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The overflow policies of a queued event service: what to do with an event fired while
+ * the service's queue is full.  The policy can be chosen per event class, so that, for
+ * instance, audit events wait for room while telemetry events are dropped:
+ *
+ * <pre>
+ *     new OverflowSettings&lt; IEvent &gt;( OverflowPolicy.DROP_OLDEST )
+ *             .policy( AuditEvent.class, OverflowPolicy.BLOCK )
+ *             .policy( TradeEvent.class, OverflowPolicy.SPILL )
+ *             .spillTo( journal );
+ * </pre>
+ *
+ * An event is subject to the policy set for the most specific of its types which has
+ * one, or to the default policy.  Settings may be shared by several services, and
+ * changed while they are in use.
+ *
+ * @param <Event> The root event type of the services using the settings
+ *
+ * @version 1.0
+ */
+public final class OverflowSettings< Event extends IEvent > {
+
+    private final OverflowPolicy defaultPolicy;
+    /** The policies set for event types; replaced on change */
+    private volatile Policies policies;
+    private volatile IOverflowSink< ? super Event > sink;
+
+    /**
+     * @param defaultPolicy The policy for events of types without a policy of their own
+     */
+    public OverflowSettings( OverflowPolicy defaultPolicy ) {
+        if ( defaultPolicy == null ) throw new NullPointerException();
+        this.defaultPolicy = defaultPolicy;
+        this.policies = new Policies( new LinkedHashMap<Class<?>, OverflowPolicy>(), defaultPolicy );
+    }
+
+    /**
+     * Set the policy for an event type, and the types derived from it.
+     *
+     * @param eventClass The event type
+     * @param policy     The policy
+     * @return These settings, for chaining
+     */
+    public synchronized OverflowSettings< Event > policy( Class< ? extends Event > eventClass, OverflowPolicy policy ) {
+        if ( eventClass == null || policy == null ) throw new NullPointerException();
+
+        Map< Class<?>, OverflowPolicy > updated = new LinkedHashMap<Class<?>, OverflowPolicy>( policies.byType );
+        updated.put( eventClass, policy );
+        policies = new Policies( updated, defaultPolicy );
+        return this;
+    }
+
+    /**
+     * Set the sink for events subject to {@link OverflowPolicy#SPILL}.
+     *
+     * @param sink The sink
+     * @return These settings, for chaining
+     */
+    public OverflowSettings< Event > spillTo( IOverflowSink< ? super Event > sink ) {
+        this.sink = sink;
+        return this;
+    }
+
+    /**
+     * @param eventClass The class of an event object
+     * @return The policy applicable to events of the class
+     */
+    public OverflowPolicy getPolicy( Class<?> eventClass ) {
+        return policies.get( eventClass );
+    }
+
+    public OverflowPolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    public IOverflowSink< ? super Event > getSink() {
+        return sink;
+    }
+
+    /**
+     * Pass an event to the sink.
+     *
+     * @throws IllegalStateException if no sink has been set
+     */
+    @SuppressWarnings( "unchecked" )
+    void spill( IEvent event ) {
+        IOverflowSink< ? super Event > sink = this.sink;
+        if ( sink == null ) throw new IllegalStateException( "No overflow sink for " + event.getClass().getName() );   // NON-NLS
+        ( (IOverflowSink< IEvent >) sink ).spill( event );
+    }
+
+    /**
+     * The policies set for event types, with the policy resolved for each event class.  The
+     * resolutions are only ever made from the policies of the same instance, so a resolution
+     * racing with {@link #policy} is cached in the replaced instance, and discarded.
+     */
+    private static final class Policies {
+        /** The policies set for event types, in the order they were set */
+        private final Map< Class<?>, OverflowPolicy > byType;
+        private final OverflowPolicy defaultPolicy;
+        private final ConcurrentMap< Class<?>, OverflowPolicy > resolved = new ConcurrentHashMap<Class<?>, OverflowPolicy>();
+
+        private Policies( Map< Class<?>, OverflowPolicy > byType, OverflowPolicy defaultPolicy ) {
+            this.byType = byType;
+            this.defaultPolicy = defaultPolicy;
+        }
+
+        OverflowPolicy get( Class<?> eventClass ) {
+            OverflowPolicy policy = resolved.get( eventClass );
+            if ( policy == null ) {
+                policy = resolve( eventClass );
+                resolved.putIfAbsent( eventClass, policy );
+            }
+            return policy;
+        }
+
+        /**
+         * Find the policy for the most specific type of the class which has one.  Of two
+         * unrelated types, the one whose policy was set first applies.
+         */
+        private OverflowPolicy resolve( Class<?> eventClass ) {
+            Class<?> best = null;
+            for ( Class<?> type : byType.keySet() ) {
+                if ( type.isAssignableFrom( eventClass ) && ( best == null || best.isAssignableFrom( type ) && best != type )) {
+                    best = type;
+                }
+            }
+            return best == null ? defaultPolicy : byType.get( best );
+        }
+    }
+}
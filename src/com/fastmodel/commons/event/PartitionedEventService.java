@@ -0,0 +1,434 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link MultiEventService} which dispatches asynchronously fired events in parallel on
+ * a fixed number of lanes, while keeping the events for each partition in order.
+ *
+ * Each event is assigned to a lane by its {@link IPartitionedEvent#getPartitionKey()
+ * partition key}; events which aren't partitioned are all assigned to the first lane.
+ * Each lane has a bounded, lock-free queue, and dispatches its events one at a time, in
+ * the order in which they were queued, so events with equal keys are always handled in
+ * order.  Lanes run as tasks on an {@link Executor}, and only run in parallel if the
+ * executor has a thread for each of them.  A lane dispatches at most a limited number of
+ * events before handing its thread back to the executor, so that lanes sharing threads
+ * take turns.
+ *
+ * What happens to an event fired while its lane's queue is full is decided by the
+ * service's {@link OverflowSettings}.  By default, the firing thread waits for the lane to
+ * make room ({@link OverflowPolicy#BLOCK}).  A listener must therefore not fire events
+ * asynchronously to its own lane faster than the lane can dispatch them; waiting for its
+ * own lane fails with an {@link IllegalStateException} rather than deadlocking.
+ *
+ * Events passed to {@link #fire} are still dispatched synchronously on the calling thread,
+ * so they are not ordered with respect to the events queued on the lanes.  Listeners are
+ * bound exactly as with a {@link MultiEventService}, and may be invoked concurrently by
+ * different lanes.
+ *
+ * @param <Event> The common root event type for this service
+ *
+ * @version 1.0
+ */
+public class PartitionedEventService< Event extends IEvent > extends MultiEventService< Event > implements IAsyncEventService< Event > {
+
+    /** The number of events a lane dispatches before yielding its thread */
+    private static final int DRAIN_BATCH = 256;
+    private static final long WAIT_NANOS = 10000L;
+
+    private final Lane[] lanes;
+    private final Executor executor;
+    private final OverflowCounters overflowCounters = new OverflowCounters();
+    private volatile boolean shutdown;
+
+    /**
+     * Initialize the event service, making the firing thread wait while a lane's queue is full.
+     *
+     * @param eventClass    The root event type
+     * @param laneCount     The number of lanes
+     * @param queueCapacity The number of events each lane can queue, which must be a power of two
+     * @param executor      The executor on which to run the lanes
+     */
+    public PartitionedEventService( Class< Event > eventClass, int laneCount, int queueCapacity, Executor executor ) {
+        this( eventClass, laneCount, queueCapacity, executor, new OverflowSettings<Event>( OverflowPolicy.BLOCK ));
+    }
+
+    /**
+     * Initialize the event service.
+     *
+     * @param eventClass    The root event type
+     * @param laneCount     The number of lanes
+     * @param queueCapacity The number of events each lane can queue, which must be a power of two
+     * @param executor      The executor on which to run the lanes
+     * @param overflow      What to do with events fired while their lane's queue is full
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    public PartitionedEventService( Class< Event > eventClass, int laneCount, int queueCapacity, Executor executor,
+                                    OverflowSettings< ? super Event > overflow ) {
+        super( eventClass );
+        if ( laneCount < 1 ) throw new IllegalArgumentException( "Lane count must be positive: " + laneCount );   // NON-NLS
+        if ( executor == null ) throw new NullPointerException();
+
+        this.executor = executor;
+        this.lanes = new PartitionedEventService.Lane[ laneCount ];
+        for ( int i = 0; i < laneCount; i++ ) {
+            lanes[ i ] = new Lane( queueCapacity, overflow );
+        }
+    }
+
+    /**
+     * Queue an event to be fired on its lane.
+     *
+     * @param event The event object to fire
+     *
+     * @return A future which completes with {@code true} if the event is handled and not
+     *          canceled, or completes exceptionally if a listener throws an exception, if
+     *          the service has been shut down, or if the event overflowed its lane's queue
+     *          and was dropped.
+     */
+    public CompletableFuture< Boolean > fireAsync( Event event ) {
+        Pending< Event > pending = new Pending<Event>( event );
+        try {
+            laneFor( event ).submit( pending );
+        } catch ( RuntimeException e ) {
+            // The lane has released the event
+            pending.result.completeExceptionally( e );
+        }
+        return pending.result;
+    }
+
+    /**
+     * Queue an event to be fired on its lane, without tracking the result.  This avoids
+     * allocating a future for each event.  Exceptions thrown by listeners are passed to
+     * {@link #dispatchFailed}.
+     *
+     * @param event The event object to fire
+     *
+     * @throws RejectedExecutionException if the service has been shut down
+     * @throws EventQueueOverflow if the lane's queue is full, under {@link OverflowPolicy#FAIL}
+     */
+    public void post( Event event ) {
+        laneFor( event ).submit( event );
+    }
+
+    /**
+     * @param event An event object
+     * @return The index of the lane on which the event would be dispatched
+     */
+    public int getLane( Event event ) {
+        if ( lanes.length == 1 || !( event instanceof IPartitionedEvent )) return 0;
+
+        Object key = ( (IPartitionedEvent) event ).getPartitionKey();
+        if ( key == null ) return 0;
+        int hash = key.hashCode();
+        return Math.floorMod( hash ^ ( hash >>> 16 ), lanes.length );
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @return The number of events queued on all lanes.  This is only a snapshot while
+     *          events are being fired.
+     */
+    public int getQueuedCount() {
+        int count = 0;
+        for ( Lane lane : lanes ) {
+            count += lane.queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return The overflow counters for the lanes' queues
+     */
+    public OverflowCounters getOverflowCounters() {
+        return overflowCounters;
+    }
+
+    /**
+     * Wait until all events which were queued before this call have been dispatched.
+     * Events queued meanwhile may or may not have been dispatched as well.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return {@code true} if the events have been dispatched, {@code false} if the timeout elapsed first
+     *
+     * @throws InterruptedException  if the thread is interrupted while waiting
+     * @throws IllegalStateException if called by a listener running on one of the lanes
+     */
+    public boolean drain( long timeout, TimeUnit unit ) throws InterruptedException {
+        long[] targets = new long[ lanes.length ];
+        for ( int i = 0; i < lanes.length; i++ ) {
+            if ( lanes[ i ].consumer == Thread.currentThread() ) {
+                throw new IllegalStateException( "Cannot drain from within a lane" );   // NON-NLS
+            }
+            targets[ i ] = lanes[ i ].submitted.get();
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos( timeout );
+        for ( int i = 0; i < lanes.length; i++ ) {
+            if ( !lanes[ i ].await( targets[ i ], deadline )) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop accepting events.  Events which have already been queued are still dispatched.
+     */
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * Stop accepting events, and discard the queued events which haven't been dispatched
+     * yet.  Events already being dispatched are completed.  The futures for the discarded
+     * events are cancelled.
+     */
+    public void shutdownNow() {
+        shutdown = true;
+        for ( Lane lane : lanes ) {
+            lane.discard = true;
+            lane.schedule();
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @return {@code true} if the service has been shut down, and all queued events have
+     *          been dispatched or discarded
+     */
+    public boolean isTerminated() {
+        if ( !shutdown ) return false;
+        for ( Lane lane : lanes ) {
+            if ( lane.completed.get() != lane.submitted.get() ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wait until the service has been shut down, and all queued events have been
+     * dispatched or discarded.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return {@code true} if the service has terminated, {@code false} if the timeout elapsed first
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitTermination( long timeout, TimeUnit unit ) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos( timeout );
+        while ( !isTerminated() ) {
+            if ( Thread.interrupted() ) throw new InterruptedException();
+            if ( deadline - System.nanoTime() <= 0 ) return false;
+            LockSupport.parkNanos( this, WAIT_NANOS );
+        }
+        return true;
+    }
+
+    /**
+     * Invoked when a listener throws an exception while a lane is dispatching an event
+     * queued by {@link #post}.  The lane continues with the next event.  By default, the
+     * exception is passed to the lane thread's uncaught exception handler.
+     *
+     * @param event The event being dispatched
+     * @param e     The exception
+     */
+    protected void dispatchFailed( Event event, RuntimeException e ) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException( thread, e );
+    }
+
+    private Lane laneFor( Event event ) {
+        return lanes[ getLane( event ) ];
+    }
+
+    /**
+     * Release the service's reference to a recyclable event which won't be dispatched.
+     */
+    private static void release( Object event ) {
+        if ( event instanceof AbstractRecyclableEvent ) ( (AbstractRecyclableEvent) event ).release();
+    }
+
+    /**
+     * A queue of events, and the task which dispatches them.  At most one task is scheduled
+     * on the executor for each lane at any time.  Events are only removed from the queue by
+     * the owner of {@link #scheduled}, or by a producer dropping the oldest event.
+     */
+    private final class Lane implements Runnable, EventQueue.Owner {
+        /** Holds event objects queued by {@link #post}, and {@link Pending} events */
+        private final EventQueue queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /** The number of events queued, or being queued */
+        private final AtomicLong submitted = new AtomicLong();
+        /** The number of events dispatched or discarded */
+        private final AtomicLong completed = new AtomicLong();
+        private volatile boolean discard;
+        /** The thread running the lane, if any */
+        private volatile Thread consumer;
+
+        private Lane( int capacity, OverflowSettings< ? > overflow ) {
+            this.queue = new EventQueue( this, capacity, overflow, overflowCounters );
+        }
+
+        /**
+         * Queue an event, applying the overflow policy if the queue is full.
+         */
+        private void submit( Object element ) {
+            submitted.incrementAndGet();
+            if ( shutdown ) {
+                submitted.decrementAndGet();
+                release( eventOf( element ));
+                throw new RejectedExecutionException( "Event service has been shut down" );   // NON-NLS
+            }
+
+            boolean queued;
+            try {
+                queued = queue.offer( element, eventOf( element ));
+            } catch ( Throwable e ) {
+                // Neither queued nor discarded, eg. under FAIL, or if the overflow sink throws
+                submitted.decrementAndGet();
+                try {
+                    if ( element instanceof Pending ) ( (Pending< ? >) element ).result.completeExceptionally( e );
+                } finally {
+                    release( eventOf( element ));
+                }
+                throw e;
+            }
+            if ( queued ) schedule();
+        }
+
+        public void awaitRoom( int attempt ) {
+            if ( consumer == Thread.currentThread() ) {
+                throw new IllegalStateException( "Lane queue is full while firing from the same lane" );   // NON-NLS
+            }
+            schedule();
+            EventQueue.park( this, attempt );
+        }
+
+        public void discarded( Object element, OverflowPolicy policy ) {
+            if ( policy == OverflowPolicy.SPILL ) {
+                // The sink has taken over the event
+                if ( element instanceof Pending ) ( (Pending< ? >) element ).result.complete( false );
+                completed.incrementAndGet();
+            } else {
+                reject( element, new EventQueueOverflow( eventOf( element ), policy ));
+            }
+        }
+
+        private void schedule() {
+            if ( scheduled.compareAndSet( false, true )) {
+                try {
+                    executor.execute( this );
+                } catch ( RejectedExecutionException e ) {
+                    // Nothing will drain the queue, so fail everything queued so far
+                    try {
+                        Object element;
+                        while (( element = queue.poll() ) != null ) {
+                            reject( element, e );
+                        }
+                    } finally {
+                        scheduled.set( false );
+                    }
+                }
+            }
+        }
+
+        public void run() {
+            consumer = Thread.currentThread();
+            try {
+                Object element;
+                for ( int i = 0; i < DRAIN_BATCH && ( element = queue.poll() ) != null; i++ ) {
+                    if ( discard ) reject( element, new CancellationException() );
+                    else dispatch( element );
+                }
+            } finally {
+                consumer = null;
+                scheduled.set( false );
+            }
+            if ( !queue.isEmpty() ) schedule();
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private void dispatch( Object element ) {
+            try {
+                if ( element instanceof Pending ) {
+                    Pending< Event > pending = (Pending< Event >) element;
+                    try {
+                        pending.result.complete( fire( pending.event ));
+                    } catch ( Throwable e ) {
+                        pending.result.completeExceptionally( e );
+                    }
+                } else {
+                    try {
+                        fire( (Event) element );
+                    } catch ( RuntimeException e ) {
+                        dispatchFailed( (Event) element, e );
+                    }
+                }
+            } finally {
+                completed.incrementAndGet();
+            }
+        }
+
+        private void reject( Object element, RuntimeException e ) {
+            try {
+                if ( element instanceof Pending ) ( (Pending< ? >) element ).result.completeExceptionally( e );
+            } finally {
+                release( eventOf( element ));
+                completed.incrementAndGet();
+            }
+        }
+
+        private IEvent eventOf( Object element ) {
+            return element instanceof Pending ? ( (Pending< ? >) element ).event : (IEvent) element;
+        }
+
+        /**
+         * Wait until a number of events have been dispatched.
+         */
+        private boolean await( long target, long deadline ) throws InterruptedException {
+            while ( completed.get() < target ) {
+                if ( Thread.interrupted() ) throw new InterruptedException();
+                if ( deadline - System.nanoTime() <= 0 ) return false;
+                LockSupport.parkNanos( this, WAIT_NANOS );
+            }
+            return true;
+        }
+    }
+
+    private static final class Pending< Event extends IEvent > {
+        private final Event event;
+        private final CompletableFuture< Boolean > result = new CompletableFuture<Boolean>();
+
+        private Pending( Event event ) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The queue on which the weak references of a service's weak listener entries are
+ * enqueued once their targets have been collected.  Polling an empty queue is cheap, so
+ * services poll it whenever listeners are bound or events are fired, and then purge the
+ * reclaimed entries in bulk.
+ *
+ * @version 1.0
+ */
+final class ReclaimQueue extends ReferenceQueue< Object > {
+
+    private final AtomicLong reclaimed = new AtomicLong();
+
+    /**
+     * Unbind the entries whose targets have been collected since the last call.
+     *
+     * @return The number of entries which were unbound
+     */
+    int reclaim() {
+        int count = 0;
+        Reference< ? > reference;
+        while (( reference = poll() ) != null ) {
+            ListenerEntry entry = ( (ListenerEntry.Reference) reference ).entry;
+            if ( entry.unbind() ) {
+                entry.reclaimed();
+                count++;
+            }
+        }
+        if ( count > 0 ) reclaimed.addAndGet( count );
+        return count;
+    }
+
+    /**
+     * @return The total number of entries reclaimed by this queue
+     */
+    long getReclaimed() {
+        return reclaimed.get();
+    }
+}
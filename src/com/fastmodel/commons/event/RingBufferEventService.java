@@ -0,0 +1,233 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * An event service which dispatches events through a preallocated ring of reusable
+ * event objects, for event rates where allocating an event per fire (or queueing it)
+ * is too expensive.
+ *
+ * Producers claim a slot with {@link #next()}, fill in the event object returned by
+ * {@link #get(long)}, and make it visible to the consumer with {@link #publish(long)}.
+ * Any number of threads may publish.  A single consumer, started with {@link #start},
+ * fires the published events in sequence order to the listeners bound to
+ * {@link #getSocket()}, processing whatever has been published since its last pass
+ * as one batch.  When the ring is full, producers wait for the consumer to catch up.
+ *
+ * <pre>
+ *     long sequence = service.next();
+ *     Tick tick = service.get( sequence );
+ *     tick.setPrice( price );
+ *     service.publish( sequence );
+ * </pre>
+ *
+ * Event objects are reused, so listeners must not keep references to them.  The
+ * cancellation flag of an {@link AbstractCancelableEvent} is cleared once the event has
+ * been dispatched; any other state must be overwritten by the producer.  Events passed
+ * directly to {@link #fire} are dispatched synchronously on the calling thread, as with
+ * {@link SimpleEventService}, and are not ordered with respect to the ring.
+ *
+ * @param <Event> The event type dispatched by this service
+ *
+ * @version 1.0
+ */
+public class RingBufferEventService< Event extends IEvent > extends SimpleEventService< Event > {
+
+    private final Object[] slots;
+    /** The round (sequence divided by capacity) of the latest publish to each slot */
+    private final AtomicIntegerArray published;
+    private final int mask;
+    private final int shift;
+    private final IWaitStrategy waitStrategy;
+
+    private final Sequence claimed = new Sequence( -1 );
+    private final Sequence consumed = new Sequence( -1 );
+    private volatile boolean running;
+    private volatile boolean consuming;
+
+    /**
+     * Initialize the event service.
+     *
+     * @param capacity     The number of event slots, which must be a power of two
+     * @param factory      Creates the event objects, once for each slot
+     * @param waitStrategy How the consumer waits while no events are available
+     */
+    public RingBufferEventService( int capacity, Supplier< ? extends Event > factory, IWaitStrategy waitStrategy ) {
+        if ( capacity < 1 || Integer.bitCount( capacity ) != 1 ) {
+            throw new IllegalArgumentException( "Capacity must be a power of two: " + capacity );   // NON-NLS
+        }
+        if ( waitStrategy == null ) throw new NullPointerException();
+
+        this.slots = new Object[ capacity ];
+        this.published = new AtomicIntegerArray( capacity );
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros( capacity );
+        this.waitStrategy = waitStrategy;
+
+        for ( int i = 0; i < capacity; i++ ) {
+            slots[ i ] = factory.get();
+            if ( slots[ i ] instanceof AbstractRecyclableEvent ) {
+                // The slots are reused in place; firing them would return them to a pool
+                throw new IllegalArgumentException( "Ring buffer slots cannot be recyclable events" );   // NON-NLS
+            }
+            published.set( i, -1 );
+        }
+    }
+
+    /**
+     * Claim the next sequence in the ring, waiting for the consumer if the ring is full.
+     *
+     * @return The claimed sequence, which must be passed to {@link #publish(long)} once
+     *          the event object has been filled in.
+     */
+    public long next() {
+        long current, next;
+        do {
+            current = claimed.get();
+            next = current + 1;
+            if ( next - slots.length > consumed.get() ) {
+                LockSupport.parkNanos( 1 );
+                continue;
+            }
+            if ( claimed.compareAndSet( current, next )) break;
+        } while ( true );
+        return next;
+    }
+
+    /**
+     * Get the event object for a claimed sequence.
+     *
+     * @param sequence A sequence returned by {@link #next()}
+     * @return The event object to fill in
+     */
+    @SuppressWarnings( "unchecked" )
+    public Event get( long sequence ) {
+        return (Event) slots[ (int) sequence & mask ];
+    }
+
+    /**
+     * Make a claimed event available to the consumer.
+     *
+     * @param sequence A sequence returned by {@link #next()}
+     */
+    public void publish( long sequence ) {
+        published.lazySet( (int) sequence & mask, (int) ( sequence >>> shift ));
+    }
+
+    /**
+     * @return The number of event slots in the ring
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Start the consumer, which runs on the executor until {@link #halt()} is called.
+     *
+     * @param executor The executor on which to run the consumer
+     * @throws IllegalStateException if the consumer is already running, or hasn't yet
+     *                               stopped after {@link #halt()}
+     */
+    public synchronized void start( Executor executor ) {
+        if ( running || consuming ) throw new IllegalStateException( "Already running" );   // NON-NLS
+        running = true;
+        consuming = true;
+        executor.execute( new Runnable() {
+            public void run() {
+                consume();
+            }
+        } );
+    }
+
+    /**
+     * Stop the consumer once it has dispatched its current batch.  Events which remain
+     * published will be dispatched if the consumer is started again.
+     */
+    public synchronized void halt() {
+        running = false;
+    }
+
+    /**
+     * Invoked when a listener throws an exception while the consumer is dispatching an
+     * event.  The consumer continues with the next event.  By default, the exception is
+     * passed to the consumer thread's uncaught exception handler.
+     *
+     * @param event The event being dispatched
+     * @param e     The exception
+     */
+    protected void dispatchFailed( Event event, RuntimeException e ) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException( thread, e );
+    }
+
+    private void consume() {
+        long next = consumed.get() + 1;
+        int idleCount = 0;
+
+        try {
+            while ( running ) {
+                long available = highestPublished( next, claimed.get() );
+                if ( available < next ) {
+                    waitStrategy.idle( ++idleCount );
+                    continue;
+                }
+
+                idleCount = 0;
+                for ( long sequence = next; sequence <= available; sequence++ ) {
+                    dispatch( get( sequence ));
+                }
+                consumed.setOrdered( available );
+                next = available + 1;
+            }
+        } finally {
+            consuming = false;
+        }
+    }
+
+    private void dispatch( Event event ) {
+        try {
+            fire( event );
+        } catch ( RuntimeException e ) {
+            dispatchFailed( event, e );
+        } finally {
+            if ( event instanceof AbstractCancelableEvent ) {
+                ( (AbstractCancelableEvent) event ).setCancelled( false );
+            }
+        }
+    }
+
+    /**
+     * Find the end of the contiguous run of published sequences.
+     *
+     * @param lower The first sequence not yet consumed
+     * @param upper The highest claimed sequence
+     * @return The highest sequence up to which all events have been published, which is
+     *          {@code lower - 1} if the next event hasn't been published yet.
+     */
+    private long highestPublished( long lower, long upper ) {
+        for ( long sequence = lower; sequence <= upper; sequence++ ) {
+            if ( published.get( (int) sequence & mask ) != (int) ( sequence >>> shift )) {
+                return sequence - 1;
+            }
+        }
+        return upper;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A sequence counter for {@link RingBufferEventService} and {@link BoundedQueue}, padded
+ * so that the producer and consumer sequences don't share a cache line.
+ *
+ * @version 1.0
+ */
+final class Sequence {
+    private static final AtomicLongFieldUpdater< Sequence > VALUE =
+            AtomicLongFieldUpdater.newUpdater( Sequence.class, "value" );
+
+    @SuppressWarnings( "unused" )
+    private long p1, p2, p3, p4, p5, p6, p7;
+    private volatile long value;
+    @SuppressWarnings( "unused" )
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    Sequence( long initial ) {
+        value = initial;
+    }
+
+    long get() {
+        return value;
+    }
+
+    /**
+     * Set the sequence without a full memory barrier.  Other threads which read the new
+     * value will also see this thread's previous writes.
+     */
+    void setOrdered( long sequence ) {
+        VALUE.lazySet( this, sequence );
+    }
+
+    boolean compareAndSet( long expected, long sequence ) {
+        return VALUE.compareAndSet( this, expected, sequence );
+    }
+}
@@ -15,8 +15,9 @@
  */
 package com.fastmodel.commons.event;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * An Event Service which handles a single type of event.  Useful for models which
@@ -25,13 +26,43 @@ import java.util.List;
  * This service can be customized by overriding {@link #preFire(IEvent)}, {@link #postFire(IEvent, boolean)}
  * or {@link #prepEvent(IEvent)}.
  *
+ * The service is thread-safe.  Listeners are held in an immutable array which is
+ * replaced (copy-on-write) whenever a listener is bound or unbound, so firing never
+ * locks and never observes a partially updated listener list.  Binding and unbinding
+ * are correspondingly more expensive, which suits the usual case where listeners are
+ * registered far less often than events are fired.  Unbinding a listener only marks it
+ * as unbound, and unbound listeners are purged from the array in bulk, once they make up
+ * half of it, so unbinding many listeners takes time in proportion to their number.
+ *
  * @author Ben Schreiber
  * @version 1.0
  */
 public class SimpleEventService< Event extends IEvent > extends AbstractEventService< Event > {
 
-    private List< IListener< Event >>   listeners;
-    private IEventSocket< Event >       socket;
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< SimpleEventService, ListenerEntry[] > LISTENERS =
+            AtomicReferenceFieldUpdater.newUpdater( SimpleEventService.class, ListenerEntry[].class, "listeners" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< SimpleEventService, IEventSocket > SOCKET =
+            AtomicReferenceFieldUpdater.newUpdater( SimpleEventService.class, IEventSocket.class, "socket" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< SimpleEventService, FilterIndex > FILTER_INDEX =
+            AtomicReferenceFieldUpdater.newUpdater( SimpleEventService.class, FilterIndex.class, "filterIndex" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicIntegerFieldUpdater< SimpleEventService > UNBOUND_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater( SimpleEventService.class, "unboundCount" );
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater< SimpleEventService, IdentityIndex > IDENTITIES =
+            AtomicReferenceFieldUpdater.newUpdater( SimpleEventService.class, IdentityIndex.class, "identities" );
+
+    private volatile ListenerEntry[]        listeners = NO_LISTENERS;
+    private volatile IEventSocket< Event >  socket;
+    /** The listeners bound with a filter, indexed by attribute.  Created when first needed. */
+    private volatile FilterIndex            filterIndex;
+    /** The number of unbound listeners still in the listener array */
+    private volatile int                    unboundCount;
+    /** The bound listeners, by identity.  Created when first needed. */
+    private volatile IdentityIndex          identities;
 
     /**
      * Initialize the event service
@@ -39,28 +70,45 @@ public class SimpleEventService< Event extends IEvent > extends AbstractEventSer
     public SimpleEventService() {
     }
 
+    @Override
+    final ListenerEntry[] getDispatchList( Event event ) {
+        reclaim();
+        FilterIndex filters = filterIndex;
+        return filters == null ? listeners : filters.getDispatchList( event, listeners );
+    }
+
     /**
-     * Fire an event to all registered listeners.
-     *
-     * @param event The event object to fire
-     * @return {@code true} if the event is handled and not canceled
+     * Record that a listener in the listener array has been unbound, and purge the unbound
+     * listeners once they make up half of the array.
      */
-    public final boolean fire( Event event ) {
-        boolean handled = preFire( event );
+    private void listenerUnbound() {
+        if ( UNBOUND_COUNT.incrementAndGet( this ) * 2 < listeners.length ) return;
 
-        if ( isCanceled( event )) return false;
+        ListenerEntry[] current, updated;
+        do {
+            current = listeners;
+            updated = liveEntries( current );
+        } while ( updated != current && !LISTENERS.compareAndSet( this, current, updated ));
+        UNBOUND_COUNT.addAndGet( this, updated.length - current.length );
+    }
 
-        for ( IListener< Event > listener : getListeners() ) {
-            Event ev = prepEvent( event );
-            if ( ev == null ) continue;
-            listener.handle( ev );
-            if ( isCanceled( ev )) return false;
-            handled = true;
+    /**
+     * @return The entries which are still bound, or the array itself if they all are
+     */
+    private static ListenerEntry[] liveEntries( ListenerEntry[] entries ) {
+        int live = 0;
+        for ( ListenerEntry entry : entries ) {
+            if ( !entry.isUnbound() ) live++;
         }
+        if ( live == entries.length ) return entries;
+        if ( live == 0 ) return NO_LISTENERS;
 
-        handled = postFire( event, handled );
-
-        return handled;
+        ListenerEntry[] result = new ListenerEntry[ live ];
+        int i = 0;
+        for ( ListenerEntry entry : entries ) {
+            if ( !entry.isUnbound() ) result[ i++ ] = entry;
+        }
+        return result;
     }
 
     /**
@@ -71,21 +119,142 @@ public class SimpleEventService< Event extends IEvent > extends AbstractEventSer
      */
     public final IEventSocket<Event> getSocket() {
         if ( socket == null ) {
-            socket = new EventSocket();
+            SOCKET.compareAndSet( this, null, new EventSocket() );
         }
         return socket;
     }
 
     /**
-     * Provides initialize-on-firs-use for the listeners
+     * Get a socket on which to register listeners which are only invoked for events
+     * matching a filter.  Filtered listeners are indexed by the filtered attribute, so
+     * that firing an event doesn't visit the listeners whose filters it doesn't match.
+     * At equal priority, they are invoked after the listeners bound without a filter.
      *
-     * @return The list of listeners
+     * @param filter The filter
+     * @return An event socket
+     */
+    public final IEventSocket<Event> getSocket( EventFilter< ? super Event > filter ) {
+        if ( filter == null ) throw new NullPointerException();
+        return new FilteredSocket( filter );
+    }
+
+    private IdentityIndex getIdentities() {
+        IdentityIndex index = identities;
+        if ( index == null ) {
+            IDENTITIES.compareAndSet( this, null, new IdentityIndex() );
+            index = identities;
+        }
+        return index;
+    }
+
+    private void addFiltered( FilteredEntry entry ) {
+        reclaim();
+        getIdentities().add( entry );
+
+        FilterIndex current;
+        do {
+            current = filterIndex;
+        } while ( !FILTER_INDEX.compareAndSet( this, current, FilterIndex.with( current, entry, entry.filter )));
+    }
+
+    private void removeFiltered( FilteredEntry entry ) {
+        FilterIndex current, updated;
+        do {
+            current = filterIndex;
+            if ( current == null ) return;
+            updated = current.without( entry );
+        } while ( updated != current && !FILTER_INDEX.compareAndSet( this, current, updated ));
+    }
+
+    /**
+     * A listener in the listener array
+     */
+    private class Entry extends ListenerEntry {
+
+        private Entry( IListener< Event > listener, int priority, ReclaimQueue queue ) {
+            super( listener, listener instanceof IReadOnlyListener, priority, queue );
+        }
+
+        @Override
+        void closed() {
+            identities.remove( this );
+            listenerUnbound();
+        }
+
+        @Override
+        void reclaimed() {
+            closed();
+        }
+    }
+
+    /**
+     * A listener bound with a filter, which is kept in the filter index instead
      */
-    private List< IListener< Event >> getListeners() {
-        if ( listeners == null ) {
-            listeners = new LinkedList<IListener<Event>>();
+    private final class FilteredEntry extends Entry {
+        private final EventFilter< ? > filter;
+
+        private FilteredEntry( IListener< Event > listener, EventFilter< ? > filter, int priority, ReclaimQueue queue ) {
+            super( listener, priority, queue );
+            this.filter = filter;
+        }
+
+        @Override
+        void closed() {
+            identities.remove( this );
+            removeFiltered( this );
+        }
+    }
+
+    private class FilteredSocket implements IEventSocket< Event > {
+        private final EventFilter< ? > filter;
+
+        private FilteredSocket( EventFilter< ? > filter ) {
+            this.filter = filter;
+        }
+
+        public IListener<Event> bind( IListener<Event> listener ) {
+            return bind( listener, 0 );
+        }
+
+        public IListener<Event> bind( IListener<Event> listener, int priority ) {
+            addFiltered( new FilteredEntry( listener, filter, priority, null ));
+            return listener;
+        }
+
+        @Override
+        public ISubscription subscribe( IListener<Event> listener, int priority ) {
+            FilteredEntry entry = new FilteredEntry( listener, filter, priority, null );
+            addFiltered( entry );
+            return entry;
+        }
+
+        public IListener<Event> bindWeak( IListener<Event> listener ) {
+            addFiltered( new FilteredEntry( listener, filter, 0, getReclaimQueue() ));
+            return listener;
+        }
+
+        /**
+         * Remove a previously registered listener from this Event.  The listener must have
+         * been registered against a socket for an equal filter.
+         *
+         * @param listener The listener to remove
+         * @return {@code true} if the specified listener was actually removed.
+         */
+        public boolean unbind( IListener<Event> listener ) {
+            IdentityIndex index = identities;
+            ListenerEntry entry = index == null ? null : index.unbind( listener, this::accepts );
+            if ( entry == null ) return false;
+
+            @SuppressWarnings( "unchecked" )
+            FilteredEntry filtered = (FilteredEntry) entry;
+            removeFiltered( filtered );
+            return true;
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private boolean accepts( ListenerEntry entry ) {
+            return entry instanceof SimpleEventService.FilteredEntry && ( (FilteredEntry) entry ).filter.equals( filter );
         }
-        return listeners;
     }
 
     private class EventSocket implements IEventSocket< Event > {
@@ -99,18 +268,85 @@ public class SimpleEventService< Event extends IEvent > extends AbstractEventSer
          *         statement that registers it.
          */
         public IListener<Event> bind( IListener<Event> listener ) {
-            getListeners().add( listener );
+            return bind( listener, 0 );
+        }
+
+        /**
+         * Register a listener for this Event with a priority.  The listeners are kept in
+         * dispatch order, so the position of the new listener is found by binary search.
+         *
+         * @param listener The listener to register
+         * @param priority The priority of the listener
+         * @return The registered listener.
+         */
+        public IListener<Event> bind( IListener<Event> listener, int priority ) {
+            bind( new Entry( listener, priority, null ));
             return listener;
         }
 
         /**
-         * Remove a previously registered listener from this Event.
+         * Register a listener for this Event, holding it only through a weak reference.
+         *
+         * @param listener The listener to register
+         * @return The registered listener.
+         */
+        public IListener<Event> bindWeak( IListener<Event> listener ) {
+            bind( new Entry( listener, 0, getReclaimQueue() ));
+            return listener;
+        }
+
+        /**
+         * Register a listener for this Event with a priority, and return its subscription.
+         *
+         * @param listener The listener to register
+         * @param priority The priority of the listener
+         * @return The subscription
+         */
+        @Override
+        public ISubscription subscribe( IListener<Event> listener, int priority ) {
+            Entry entry = new Entry( listener, priority, null );
+            bind( entry );
+            return entry;
+        }
+
+        /**
+         * Insert an entry into the listener array, purging any unbound listeners.
+         */
+        private void bind( Entry entry ) {
+            reclaim();
+            getIdentities().add( entry );
+            ListenerEntry[] current, updated;
+            ListenerEntry[] live;
+            do {
+                current = listeners;
+                live = liveEntries( current );
+                int index = ListenerEntry.insertionPoint( Arrays.asList( live ), entry.getPriority() );
+                updated = new ListenerEntry[ live.length + 1 ];
+                System.arraycopy( live, 0, updated, 0, index );
+                updated[ index ] = entry;
+                System.arraycopy( live, index, updated, index + 1, live.length - index );
+            } while ( !LISTENERS.compareAndSet( SimpleEventService.this, current, updated ));
+            UNBOUND_COUNT.addAndGet( SimpleEventService.this, live.length - current.length );
+        }
+
+        /**
+         * Remove a previously registered listener from this Event.  The listener is found
+         * through the identity index, and only marked as unbound.
          *
          * @param listener The listener to remove
          * @return {@code true} if the specified listener was actually removed.
          */
         public boolean unbind( IListener<Event> listener ) {
-            return getListeners().remove( listener );
+            IdentityIndex index = identities;
+            ListenerEntry entry = index == null ? null : index.unbind( listener, this::accepts );
+            if ( entry == null ) return false;
+
+            listenerUnbound();
+            return true;
+        }
+
+        private boolean accepts( ListenerEntry entry ) {
+            return !( entry instanceof SimpleEventService.FilteredEntry );
         }
     }
 }
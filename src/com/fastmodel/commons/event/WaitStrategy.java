@@ -0,0 +1,62 @@
+/*
+   Copyright 2014 Fast Model Technologies, LLC
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.fastmodel.commons.event;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The standard wait strategies for a {@link RingBufferEventService} consumer, trading
+ * CPU usage against latency.
+ *
+ * @version 1.0
+ */
+public enum WaitStrategy implements IWaitStrategy {
+
+    /**
+     * Spin without giving up the CPU.  Gives the lowest latency, but occupies a core
+     * for as long as the consumer is running.
+     */
+    BUSY_SPIN {
+        public void idle( int idleCount ) {
+        }
+    },
+
+    /**
+     * Spin briefly, then yield the CPU to other threads between checks.
+     */
+    YIELDING {
+        public void idle( int idleCount ) {
+            if ( idleCount > SPIN_TRIES ) {
+                Thread.yield();
+            }
+        }
+    },
+
+    /**
+     * Spin briefly, then park the consumer for a short time between checks.  Uses the
+     * least CPU, at the cost of latency when events arrive after a quiet period.
+     */
+    PARKING {
+        public void idle( int idleCount ) {
+            if ( idleCount > SPIN_TRIES ) {
+                LockSupport.parkNanos( PARK_NANOS );
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 50000L;
+}